@@ -4,6 +4,8 @@ import net.minecraftforge.common.ForgeConfigSpec;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
 import net.minecraftforge.fml.event.config.ModConfigEvent;
+import net.yixi_xun.affix_core.affix.AffixManager;
+import net.yixi_xun.affix_core.api.ExpressionHelper;
 
 @Mod.EventBusSubscriber(modid = AffixCoreMod.MOD_ID, bus = Mod.EventBusSubscriber.Bus.MOD)
 public class ACConfig {
@@ -15,6 +17,14 @@ public class ACConfig {
     public static final ForgeConfigSpec.IntValue MAX_AREA_DAMAGE_ENTITIES;
     public static final ForgeConfigSpec.BooleanValue SHOW_RAFFLE_CONTAINER_POS;
     public static final ForgeConfigSpec.BooleanValue SHOW_RAFFLE_PROBABILITY_INFO;
+
+    // 表达式相关配置
+    public static final ForgeConfigSpec.IntValue EXPRESSION_CACHE_SIZE;
+
+    // 词缀处理相关配置
+    public static final ForgeConfigSpec.DoubleValue AFFIX_TICK_BUDGET_MS;
+    public static final ForgeConfigSpec.IntValue MAX_DEFERRED_AFFIX_DISPATCHES;
+    public static final ForgeConfigSpec.IntValue AFFIX_CACHE_SIZE;
     
     static {
         BUILDER.push("area_damage");
@@ -33,6 +43,25 @@ public class ACConfig {
             .comment("Whether to show the probability information in the tooltip when container Mode (default: false)")
             .define("showRaffleProbabilityInfo", true);
         BUILDER.pop();
+        BUILDER.push("expression");
+        EXPRESSION_CACHE_SIZE = BUILDER
+            .comment("Maximum number of compiled expressions kept in the cache, least recently used ones are evicted first (default: 1024)")
+            .defineInRange("expressionCacheSize", 1024, 16, 65536);
+        BUILDER.pop();
+        BUILDER.push("dispatch");
+        AFFIX_TICK_BUDGET_MS = BUILDER
+            .comment("Time budget in milliseconds for processing affixes in one server tick, 0 disables the budget. " +
+                    "Once spent, on_tick and on_use_tick affixes are deferred to the following ticks, " +
+                    "keeping only the latest pending trigger per entity (default: 0.0)")
+            .defineInRange("affixTickBudgetMs", 0.0, 0.0, 1000.0);
+        MAX_DEFERRED_AFFIX_DISPATCHES = BUILDER
+            .comment("Maximum number of deferred affix triggers waiting for the following ticks, extra ones are dropped (default: 4096)")
+            .defineInRange("maxDeferredAffixDispatches", 4096, 0, 65536);
+        AFFIX_CACHE_SIZE = BUILDER
+            .comment("Maximum number of items whose decoded affixes are shared between copies of the same item, " +
+                    "least recently used entries are evicted (default: 4096)")
+            .defineInRange("affixCacheSize", 4096, 16, 262144);
+        BUILDER.pop();
     }
 
     static final ForgeConfigSpec SPEC = BUILDER.build();
@@ -40,5 +69,9 @@ public class ACConfig {
 
     @SubscribeEvent
     static void onLoad(final ModConfigEvent event) {
+        if (event.getConfig().getSpec() != SPEC) return;
+
+        ExpressionHelper.getExpressionCache().setCapacity(EXPRESSION_CACHE_SIZE.get());
+        AffixManager.getAffixCache().setCapacity(AFFIX_CACHE_SIZE.get());
     }
 }
\ No newline at end of file
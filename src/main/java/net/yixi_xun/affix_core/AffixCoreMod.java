@@ -16,6 +16,7 @@ import net.yixi_xun.affix_core.affix.AffixManager;
 import net.yixi_xun.affix_core.init.AffixCoreModBlocks;
 import net.yixi_xun.affix_core.init.AffixCoreModItems;
 import net.yixi_xun.affix_core.init.AffixCoreModTab;
+import net.yixi_xun.affix_core.profiling.AffixJfrEvents;
 import org.slf4j.Logger;
 
 import java.util.AbstractMap;
@@ -55,6 +56,8 @@ public class AffixCoreMod {
     @SubscribeEvent
     public void tick(TickEvent.ServerTickEvent event) {
         if (event.phase == TickEvent.Phase.END) {
+            AffixJfrEvents.ServerWorkTick jfrEvent = new AffixJfrEvents.ServerWorkTick();
+            jfrEvent.begin();
             List<AbstractMap.SimpleEntry<Runnable, Integer>> actions = new ArrayList<>();
             workQueue.forEach(work -> {
                 work.setValue(work.getValue() - 1);
@@ -63,6 +66,11 @@ public class AffixCoreMod {
             });
             actions.forEach(e -> e.getKey().run());
             workQueue.removeAll(actions);
+            if (jfrEvent.shouldCommit()) {
+                jfrEvent.queued = workQueue.size() + actions.size();
+                jfrEvent.executed = actions.size();
+                jfrEvent.commit();
+            }
         }
     }
 
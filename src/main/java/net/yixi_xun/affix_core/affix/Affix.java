@@ -7,7 +7,12 @@ import net.yixi_xun.affix_core.affix.operation.IOperation;
 import net.yixi_xun.affix_core.affix.operation.OperationManager;
 import net.yixi_xun.affix_core.api.AffixEvent.AffixExecuteEvent;
 import net.yixi_xun.affix_core.api.AffixEvent.AffixRemoveEvent;
+import net.yixi_xun.affix_core.api.ExpressionHelper;
+import net.yixi_xun.affix_core.api.expression.CompiledExpression;
+import net.yixi_xun.affix_core.profiling.AffixJfrEvents;
+import net.yixi_xun.affix_core.profiling.AffixProfiler;
 
+import java.nio.charset.StandardCharsets;
 import java.util.UUID;
 
 import static net.yixi_xun.affix_core.AffixCoreMod.LOGGER;
@@ -16,9 +21,63 @@ import static net.yixi_xun.affix_core.api.ExpressionHelper.evaluateCondition;
 
 /**
  * 表示一个词缀，包含触发器、条件、操作、冷却时间和槽位限制等信息
+ * <p>
+ * compiledCondition 为条件的编译结果，条件恒为真时为 null；
+ * triggerMask 为触发器列表在 {@link TriggerRegistry} 中的位掩码；
+ * cooldownGroup 非空时，同一范围内同组的词缀共享一个冷却，cooldownKey 为冷却计时使用的键
  */
 public record Affix(UUID uuid, String trigger, String condition, IOperation operation, Long cooldown, int triggerCount,
-                    String slot, long priority, int repetitionTimes) {
+                    String slot, long priority, int repetitionTimes, CooldownScope cooldownScope, String cooldownGroup,
+                    CompiledExpression compiledCondition, long triggerMask, UUID cooldownKey) {
+
+    /**
+     * 创建词缀并编译条件表达式
+     *
+     * @throws IllegalArgumentException 条件表达式存在语法错误时抛出
+     */
+    public Affix(UUID uuid, String trigger, String condition, IOperation operation, Long cooldown, int triggerCount,
+                 String slot, long priority, int repetitionTimes) {
+        this(uuid, trigger, condition, operation, cooldown, triggerCount, slot, priority, repetitionTimes,
+                CooldownScope.ITEM, "");
+    }
+
+    /**
+     * 创建词缀并编译条件表达式
+     *
+     * @param cooldownScope 冷却的作用范围
+     * @param cooldownGroup 冷却组，为空时词缀单独冷却
+     * @throws IllegalArgumentException 条件表达式存在语法错误时抛出
+     */
+    public Affix(UUID uuid, String trigger, String condition, IOperation operation, Long cooldown, int triggerCount,
+                 String slot, long priority, int repetitionTimes, CooldownScope cooldownScope, String cooldownGroup) {
+        this(uuid, trigger, condition, operation, cooldown, triggerCount, slot, priority, repetitionTimes,
+                cooldownScope, cooldownGroup, compileCondition(condition), TriggerRegistry.mask(trigger),
+                cooldownKey(uuid, cooldownGroup));
+    }
+
+    /**
+     * 冷却计时使用的键：没有冷却组时为词缀 UUID，否则由组名生成，同组的词缀得到相同的键
+     */
+    private static UUID cooldownKey(UUID uuid, String cooldownGroup) {
+        if (cooldownGroup == null || cooldownGroup.isEmpty()) {
+            return uuid;
+        }
+        return UUID.nameUUIDFromBytes(("cooldown_group:" + cooldownGroup).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 编译条件表达式，空条件或恒为真的条件返回 null
+     */
+    private static CompiledExpression compileCondition(String condition) {
+        if (condition == null || condition.trim().isEmpty()) {
+            return null;
+        }
+        CompiledExpression compiled = ExpressionHelper.compile(condition);
+        if (compiled.isConstant() && Math.abs(compiled.getConstantValue()) > 1e-10) {
+            return null;
+        }
+        return compiled;
+    }
     /**
      * 从物品NBT中读取词缀信息
      */
@@ -29,6 +88,13 @@ public record Affix(UUID uuid, String trigger, String condition, IOperation oper
 
         // 读取条件，默认为空字符串（视为true）
         String condition = nbt.contains("Condition") ? nbt.getString("Condition") : "";
+        CompiledExpression compiledCondition;
+        try {
+            compiledCondition = compileCondition(condition);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Invalid condition '{}' in Affix NBT: {}", condition, e.getMessage());
+            return null;
+        }
 
         // 读取操作配置
         IOperation operation;
@@ -59,7 +125,13 @@ public record Affix(UUID uuid, String trigger, String condition, IOperation oper
         // 读取重复次数
         int repetitionTimes = nbt.contains("RepetitionTimes") ? nbt.getInt("RepetitionTimes") : 1;
 
-        return new Affix(uuid, trigger, condition, operation, cooldown, triggerCount, slot, priority, repetitionTimes);
+        // 读取冷却范围和冷却组，默认按物品单独冷却
+        CooldownScope cooldownScope = CooldownScope.fromString(nbt.getString("CooldownScope"));
+        String cooldownGroup = nbt.getString("CooldownGroup");
+
+        return new Affix(uuid, trigger, condition, operation, cooldown, triggerCount, slot, priority, repetitionTimes,
+                cooldownScope, cooldownGroup, compiledCondition, TriggerRegistry.mask(trigger),
+                cooldownKey(uuid, cooldownGroup));
     }
 
     /**
@@ -95,9 +167,24 @@ public record Affix(UUID uuid, String trigger, String condition, IOperation oper
 
         nbt.putInt("RepetitionTimes", repetitionTimes);
 
+        // 冷却范围和冷却组只在非默认时保存
+        if (cooldownScope != null && cooldownScope != CooldownScope.ITEM) {
+            nbt.putString("CooldownScope", cooldownScope.getName());
+        }
+        if (cooldownGroup != null && !cooldownGroup.isEmpty()) {
+            nbt.putString("CooldownGroup", cooldownGroup);
+        }
+
         return nbt;
     }
 
+    /**
+     * 检查词缀是否响应指定的触发器
+     */
+    public boolean hasTrigger(int triggerId) {
+        return TriggerRegistry.matches(triggerMask, trigger, triggerId);
+    }
+
     /**
      * 检查词缀是否在非指定槽位触发
      */
@@ -112,13 +199,13 @@ public record Affix(UUID uuid, String trigger, String condition, IOperation oper
      */
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
     public boolean checkCondition(AffixContext context) {
-        // 如果没有条件，默认为true
-        if (condition == null || condition.trim().isEmpty()) {
+        // 如果没有条件或条件恒为真，直接跳过求值
+        if (compiledCondition == null) {
             return true;
         }
 
         // 使用ExpressionHelper评估条件
-        return evaluateCondition(condition, context.getVariables());
+        return evaluateCondition(compiledCondition, context.getVariables());
 
     }
 
@@ -136,7 +223,17 @@ public record Affix(UUID uuid, String trigger, String condition, IOperation oper
             if (repetitionTimes <= 0) return;
 
             for (int i = 0; i < repetitionTimes; i++) {
+                long profileStart = AffixProfiler.begin();
+                AffixJfrEvents.Operation jfrEvent = new AffixJfrEvents.Operation();
+                jfrEvent.begin();
                 operation.apply(context);
+                if (jfrEvent.shouldCommit()) {
+                    jfrEvent.trigger = context.getTrigger();
+                    jfrEvent.operationType = operation.getType();
+                    jfrEvent.entityType = AffixJfrEvents.entityType(context.getOwner());
+                    jfrEvent.commit();
+                }
+                AffixProfiler.recordOperation(this, operation.getType(), profileStart);
             }
 
             // 更新词缀触发次数
@@ -144,7 +241,9 @@ public record Affix(UUID uuid, String trigger, String condition, IOperation oper
                 context.getItemStack().getOrCreateTag().getList(AFFIX_TAG_KEY, Tag.TAG_COMPOUND)
                         .stream().filter(tag -> tag instanceof CompoundTag compoundTag && compoundTag.getString("UUID").equals(uuid.toString()))
                         .findFirst().ifPresent(tag -> ((CompoundTag)tag).putInt("TriggerCount", triggerCount + 1));
-
+                // 更新版本戳，并让持有者的词缀索引使用新的触发次数
+                AffixManager.markAffixesChanged(context.getItemStack());
+                AffixIndex.invalidate(context.getOwner());
             }
         }
     }
@@ -0,0 +1,15 @@
+package net.yixi_xun.affix_core.affix;
+
+import javax.annotation.Nullable;
+
+/**
+ * 由 {@link net.yixi_xun.affix_core.mixin.ItemStackMixin} 实现在 ItemStack 上，
+ * 保存该物品解析出的词缀列表。缓存随物品一起被回收，只在内存中存在，不会写入存档或同步
+ */
+public interface AffixCacheHolder {
+
+    @Nullable
+    AffixManager.CachedAffixes affix_core$getCachedAffixes();
+
+    void affix_core$setCachedAffixes(@Nullable AffixManager.CachedAffixes cached);
+}
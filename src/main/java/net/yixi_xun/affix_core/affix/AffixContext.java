@@ -12,11 +12,13 @@ import net.minecraftforge.event.entity.living.LivingDeathEvent;
 import net.minecraftforge.event.entity.living.LivingHurtEvent;
 import net.minecraftforge.eventbus.api.Event;
 import net.minecraftforge.registries.ForgeRegistries;
+import net.yixi_xun.affix_core.api.expression.VariableFrame;
 
 import javax.annotation.Nullable;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import static net.yixi_xun.affix_core.affix.AffixTrigger.getPlayerMovement;
 import static net.yixi_xun.affix_core.api.ExpressionHelper.parseNbtCompound;
@@ -26,23 +28,72 @@ public class AffixContext {
     private final LivingEntity owner;
     private final ItemStack itemStack;
     private final Affix affix;
-    private final Set<String> trigger;
+    private final String trigger;
+    private final long triggerMask;
     private final Event event;
-    private final Map<String, Object> variables = new HashMap<>();
+    private final VariableFrame variables;
 
     public AffixContext(Level world, LivingEntity owner, ItemStack itemStack, Affix affix, String trigger, Event event) {
+        this(world, owner, itemStack, affix, trigger, event, null);
+    }
+
+    /**
+     * 创建词缀上下文
+     *
+     * @param sharedVariables 同一次触发中所有词缀共享的变量，为 null 时不共享。
+     *                        本上下文的变量叠加在其之上，写入不会影响其他词缀
+     */
+    public AffixContext(Level world, LivingEntity owner, ItemStack itemStack, Affix affix, String trigger, Event event,
+                        @Nullable VariableFrame sharedVariables) {
         this.world = world;
         this.owner = owner;
         this.itemStack = itemStack;
         this.affix = affix;
-        this.trigger = Set.of(trigger.split(","));
+        this.trigger = trigger;
+        this.triggerMask = TriggerRegistry.mask(trigger);
+        this.event = event;
+        this.variables = new VariableFrame(sharedVariables);
+
+        // 初始化基础变量，共享变量中的同名变量优先；除触发次数外都在被读取时才计算
+        putLazyIfAbsent("random", Math::random);
+        if (!variables.containsKey("trigger_count")) {
+            variables.put("trigger_count", affix.triggerCount());
+        }
+        putLazyIfAbsent("time", world::getGameTime);
+        putLazyIfAbsent("world_name", () -> world.dimension().registry().toString());
+    }
+
+    private void putLazyIfAbsent(String name, Supplier<?> supplier) {
+        if (!variables.containsKey(name)) {
+            variables.putLazy(name, supplier);
+        }
+    }
+
+    // 触发级上下文，只用于收集共享变量
+    private AffixContext(Level world, LivingEntity owner, String trigger, Event event) {
+        this.world = world;
+        this.owner = owner;
+        this.itemStack = ItemStack.EMPTY;
+        this.affix = null;
+        this.trigger = trigger;
+        this.triggerMask = TriggerRegistry.mask(trigger);
         this.event = event;
+        this.variables = new VariableFrame();
+    }
 
-        // 初始化基础变量
-        variables.put("random", Math.random());
-        variables.put("trigger_count", affix.triggerCount());
-        variables.put("time", world.getGameTime());
-        variables.put("world_name", world.dimension().registry().toString());
+    /**
+     * 创建一次触发中所有词缀共享的变量：事件变量和 self
+     *
+     * @param eventVarSetter 事件变量设置器（可为null）
+     */
+    public static VariableFrame createSharedVariables(LivingEntity owner, String trigger, Event event,
+                                                      @Nullable Consumer<AffixContext> eventVarSetter) {
+        AffixContext context = new AffixContext(owner.level(), owner, trigger, event);
+        if (eventVarSetter != null) {
+            eventVarSetter.accept(context);
+        }
+        context.ensureSelfInitialized();
+        return context.variables;
     }
 
     /**
@@ -92,8 +143,11 @@ public class AffixContext {
         }
     }
 
+    /**
+     * 创建实体数据映射，开销较大的字符串和速度信息在被读取时才计算
+     */
     public static Map<String, Object> createEntityData(LivingEntity entity) {
-        Map<String, Object> entityData = new HashMap<>();
+        VariableFrame entityData = new VariableFrame();
         if (entity == null) return entityData;
 
         // 基本状态
@@ -105,16 +159,18 @@ public class AffixContext {
         entityData.put("y", entity.getY());
         entityData.put("z", entity.getZ());
         if (entity instanceof Player player) {
-            entityData.put("speed", getPlayerMovement(player).length() * 20);
+            entityData.putLazy("speed", () -> getPlayerMovement(player).length() * 20);
         } else {
-            entityData.put("speed", entity.getDeltaMovement().length() * 20);
+            entityData.putLazy("speed", () -> entity.getDeltaMovement().length() * 20);
         }
 
         // 字符串信息
-        entityData.put("name", entity.getName().getString());
-        ResourceLocation entityKey = ForgeRegistries.ENTITY_TYPES.getKey(entity.getType());
-        entityData.put("type", entityKey != null ? entityKey.toString() : "unknown");
-        entityData.put("uuid", entity.getStringUUID());
+        entityData.putLazy("name", () -> entity.getName().getString());
+        entityData.putLazy("type", () -> {
+            ResourceLocation entityKey = ForgeRegistries.ENTITY_TYPES.getKey(entity.getType());
+            return entityKey != null ? entityKey.toString() : "unknown";
+        });
+        entityData.putLazy("uuid", entity::getStringUUID);
 
         // 布尔信息
         entityData.put("is_sprinting", entity.isSprinting() ? 1 : 0);
@@ -138,12 +194,12 @@ public class AffixContext {
     }
 
     public boolean inCooldown() {
-        return !AffixManager.isCooldownOver(itemStack, affix, world);
+        return !AffixManager.isCooldownOver(owner, itemStack, affix, world);
     }
 
     public void setCooldown(Long cooldownTicks) {
         if (cooldownTicks > 0) {
-            AffixManager.setCooldown(itemStack, affix, cooldownTicks, world);
+            AffixManager.setCooldown(owner, itemStack, affix, cooldownTicks, world);
         }
     }
 
@@ -153,23 +209,31 @@ public class AffixContext {
     public ItemStack getItemStack() { return itemStack; }
     public Affix getAffix() { return affix; }
     public Event getEvent() { return event; }
+    public String getTrigger() { return trigger; }
+
+    /**
+     * 当前上下文是否由指定的触发器触发
+     */
+    public boolean hasTrigger(int triggerId) {
+        return TriggerRegistry.matches(triggerMask, trigger, triggerId);
+    }
 
     @Nullable
     public LivingEntity getTarget() {
         // 事件类型检查
         if (event instanceof LivingHurtEvent hurtEvent) {
-            if (trigger.contains("on_attack")) {
+            if (hasTrigger(TriggerRegistry.ON_ATTACK)) {
                 LivingEntity target = hurtEvent.getEntity();
                 return target != null && target.isAlive() ? target : owner;
-            } else if (trigger.contains("on_hurt")) {
+            } else if (hasTrigger(TriggerRegistry.ON_HURT)) {
                 Entity source = hurtEvent.getSource().getEntity();
                 return source instanceof LivingEntity livingSource && livingSource.isAlive() ? livingSource : null;
             }
         } else if (event instanceof LivingDeathEvent deathEvent) {
-            if (trigger.contains("on_kill")) {
+            if (hasTrigger(TriggerRegistry.ON_KILL)) {
                 LivingEntity killed = deathEvent.getEntity();
                 return killed != null ? killed : owner;
-            } else if (trigger.contains("on_death")) {
+            } else if (hasTrigger(TriggerRegistry.ON_DEATH)) {
                 Entity killer = deathEvent.getSource().getEntity();
                 return killer instanceof LivingEntity livingKiller && livingKiller.isAlive() ? livingKiller : null;
             }
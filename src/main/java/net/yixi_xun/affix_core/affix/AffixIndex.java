@@ -0,0 +1,161 @@
+package net.yixi_xun.affix_core.affix;
+
+import net.minecraft.world.entity.EquipmentSlot;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.item.ItemStack;
+import top.theillusivec4.curios.api.CuriosApi;
+import top.theillusivec4.curios.api.type.inventory.ICurioStacksHandler;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+import static net.yixi_xun.affix_core.AffixCoreMod.LOGGER;
+import static net.yixi_xun.affix_core.affix.AffixManager.getAffixes;
+
+/**
+ * 实体已装备词缀的索引
+ * 按触发器 id 分组保存实体装备槽位和 Curios 槽位中的所有词缀，每组已按优先级从高到低排好序，
+ * 只在装备变化时重建，触发词缀时按触发器 id 直接取数组元素，不再逐个遍历槽位和排序
+ */
+public class AffixIndex {
+    private static final EquipmentSlot[] EQUIPMENT_SLOTS = EquipmentSlot.values();
+    private static final Comparator<Entry> BY_PRIORITY =
+            Comparator.comparingLong((Entry entry) -> entry.affix().priority()).reversed();
+
+    // 实体 -> 词缀索引，实体被回收后自动移除
+    private static final Map<LivingEntity, Index> indices = new WeakHashMap<>();
+    // 物品上的词缀被直接修改时递增，使所有索引失效
+    private static int generation;
+
+    /**
+     * 索引中的一项
+     *
+     * @param affix 词缀
+     * @param stack 词缀所在的物品
+     * @param slot 物品所在的装备槽位，Curios 槽位为 null
+     */
+    public record Entry(Affix affix, ItemStack stack, @Nullable EquipmentSlot slot) {
+    }
+
+    /**
+     * @param generation 构建时的版本号
+     * @param equipment 构建时各装备槽位中的物品，用于检查装备是否被替换
+     * @param byTrigger 以触发器 id 为下标、按优先级排好序的词缀列表，没有词缀的触发器为 null
+     * @param ticking 是否有 on_tick 词缀
+     */
+    private record Index(int generation, ItemStack[] equipment, List<Entry>[] byTrigger, boolean ticking) {
+
+        List<Entry> get(int triggerId) {
+            List<Entry> entries = triggerId >= 0 && triggerId < byTrigger.length ? byTrigger[triggerId] : null;
+            return entries != null ? entries : List.of();
+        }
+    }
+
+    /**
+     * 获取实体身上指定触发器的所有词缀，按优先级从高到低排列（数值越大优先级越高）。
+     * 索引不存在或已过期时重新构建
+     */
+    public static List<Entry> getEntries(LivingEntity entity, int triggerId) {
+        Index index = indices.get(entity);
+        if (index == null || index.generation() != generation || isEquipmentReplaced(entity, index)) {
+            index = build(entity);
+            indices.put(entity, index);
+        }
+        return index.get(triggerId);
+    }
+
+    /**
+     * 实体是否可能有 on_tick 词缀。
+     * 索引最新且没有 on_tick 词缀的实体返回 false，tick 时可以直接跳过
+     */
+    public static boolean mayHaveTickAffixes(LivingEntity entity) {
+        Index index = indices.get(entity);
+        return index == null || index.generation() != generation || index.ticking();
+    }
+
+    /**
+     * 实体装备变化时使其索引失效
+     */
+    public static void invalidate(LivingEntity entity) {
+        indices.remove(entity);
+    }
+
+    /**
+     * 使所有实体的索引失效，用于物品上的词缀被直接修改的情况
+     */
+    public static void invalidateAll() {
+        generation++;
+    }
+
+    /**
+     * 实体离开世界时移除其索引
+     */
+    public static void remove(LivingEntity entity) {
+        indices.remove(entity);
+    }
+
+    // 装备槽位中的物品实例被替换时，即使还没有收到装备变化事件也视为过期
+    private static boolean isEquipmentReplaced(LivingEntity entity, Index index) {
+        for (int i = 0; i < EQUIPMENT_SLOTS.length; i++) {
+            if (entity.getItemBySlot(EQUIPMENT_SLOTS[i]) != index.equipment()[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Index build(LivingEntity entity) {
+        Map<Integer, List<Entry>> byTrigger = new HashMap<>();
+        ItemStack[] equipment = new ItemStack[EQUIPMENT_SLOTS.length];
+
+        // 装备槽位
+        for (int i = 0; i < EQUIPMENT_SLOTS.length; i++) {
+            ItemStack stack = entity.getItemBySlot(EQUIPMENT_SLOTS[i]);
+            equipment[i] = stack;
+            if (stack.isEmpty()) continue;
+            addAffixes(byTrigger, stack, EQUIPMENT_SLOTS[i].getName(), EQUIPMENT_SLOTS[i]);
+        }
+
+        // Curios 槽位
+        try {
+            CuriosApi.getCuriosInventory(entity).ifPresent(inventory -> {
+                for (ICurioStacksHandler handler : inventory.getCurios().values()) {
+                    for (int i = 0; i < handler.getSlots(); i++) {
+                        ItemStack stack = handler.getStacks().getStackInSlot(i);
+                        if (stack.isEmpty()) continue;
+                        addAffixes(byTrigger, stack, handler.getIdentifier(), null);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            LOGGER.warn("获取所有Curios词缀时出错: {}", e.getMessage());
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Entry>[] lists = new List[byTrigger.isEmpty() ? 0 : Collections.max(byTrigger.keySet()) + 1];
+        byTrigger.forEach((triggerId, entries) -> {
+            // 稳定排序，优先级相同的词缀保持槽位顺序
+            entries.sort(BY_PRIORITY);
+            lists[triggerId] = entries;
+        });
+        return new Index(generation, equipment, lists, byTrigger.containsKey(TriggerRegistry.ON_TICK));
+    }
+
+    private static void addAffixes(Map<Integer, List<Entry>> byTrigger, ItemStack stack,
+                                   String slotName, @Nullable EquipmentSlot slot) {
+        for (Affix affix : getAffixes(stack)) {
+            if (affix == null || affix.trigger() == null || !affix.canTriggerInSlot(slotName)) continue;
+            Entry entry = new Entry(affix, stack, slot);
+            for (String trigger : affix.trigger().split(",")) {
+                // 未注册的触发器不会被分发，无需建立索引
+                int triggerId = TriggerRegistry.getId(trigger);
+                if (triggerId < 0) continue;
+                List<Entry> entries = byTrigger.computeIfAbsent(triggerId, k -> new ArrayList<>());
+                // 同一词缀重复声明同一触发器时只记录一次
+                if (entries.isEmpty() || entries.get(entries.size() - 1) != entry) {
+                    entries.add(entry);
+                }
+            }
+        }
+    }
+}
@@ -10,24 +10,37 @@ import net.minecraftforge.common.MinecraftForge;
 import net.yixi_xun.affix_core.AffixCoreMod;
 import net.yixi_xun.affix_core.affix.operation.*;
 import net.yixi_xun.affix_core.api.AffixEvent;
+import net.yixi_xun.affix_core.util.CooldownStore;
+import net.yixi_xun.affix_core.util.LruCache;
 
-import java.lang.ref.WeakReference;
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class AffixManager {
 
     public static final String AFFIX_TAG_KEY = "Affixes";
+    // 词缀列表的内容哈希，由修改词缀列表的代码通过 markAffixesChanged 写入；读取词缀时只作参考
+    public static final String AFFIX_HASH_KEY = "AffixesHash";
     private static final String ITEM_UUID_NBT_KEY = "AffixItemUUID";
     
-    // 使用物品的唯一ID作为Key
-    public static final Map<UUID, Map<String, Long>> affixCooldowns = new ConcurrentHashMap<>();
+    // (物品唯一ID, 词缀UUID) -> 冷却结束时间，过期的冷却自动回收
+    private static final CooldownStore COOLDOWNS = new CooldownStore();
     
-    // 缓存已解析的词缀列表
-    private static final Map<UUID, WeakReference<List<Affix>>> affixCache = new ConcurrentHashMap<>();
+    // 按物品唯一ID共享的词缀解析结果，供同一物品的副本（如 ItemStack.copy() 的结果）复用，有容量上限
+    private static final LruCache<UUID, CachedAffixes> AFFIX_CACHE = new LruCache<>(4096);
+
+    /**
+     * 保存在物品上的词缀解析结果，见 {@link AffixCacheHolder}
+     *
+     * @param tag 解析时物品的 NBT 标签，标签被整体替换后缓存失效；共享缓存中为 null
+     * @param stamp 解析时词缀列表的内容哈希，标签被替换后用于判断共享的解析结果是否仍然有效
+     * @param affixes 解析出的词缀
+     */
+    public record CachedAffixes(@Nullable CompoundTag tag, int stamp, List<Affix> affixes) {
+    }
 
 
     /**
@@ -56,68 +69,83 @@ public class AffixManager {
     }
 
     /**
-     * 从物品中获取所有词缀
+     * 从物品中获取所有词缀，不会修改物品。
+     * 物品上的解析结果按 NBT 标签引用缓存，原地修改 Affixes 标签后必须调用 {@link #markAffixesChanged(ItemStack)}，
+     * 否则会继续返回修改前的词缀（词缀数量变化时会记录警告并重新解析）；
+     * 标签被替换后按词缀列表的内容哈希匹配共享的解析结果
      */
     public static List<Affix> getAffixes(ItemStack itemStack) {
         if (itemStack == null || !itemStack.hasTag()) {
             return new ArrayList<>();
         }
 
-        // 获取物品的唯一ID
-        UUID itemId = getItemUniqueId(itemStack);
-        
-        // 尝试从缓存中获取
-        WeakReference<List<Affix>> cachedRef = affixCache.get(itemId);
-        List<Affix> cachedAffixes = cachedRef != null ? cachedRef.get() : null;
-        
-        // 检查缓存是否有效且NBT未发生变化
-        if (cachedAffixes != null) {
-            // 验证缓存是否仍然有效
-            ListTag currentAffixList = itemStack.getOrCreateTag().getList(AFFIX_TAG_KEY, Tag.TAG_COMPOUND);
-            if (currentAffixList.isEmpty()) return new ArrayList<>();
-            if (isCacheValid(cachedAffixes, currentAffixList)) {
-                return cachedAffixes;
-            }
+        CompoundTag nbt = itemStack.getOrCreateTag();
+        ListTag affixList = nbt.getList(AFFIX_TAG_KEY, Tag.TAG_COMPOUND);
+        if (affixList.isEmpty()) return new ArrayList<>();
+
+        // 尝试从物品上的缓存获取：标签未被替换说明词缀列表未发生变化，原地修改时 markAffixesChanged 会清除此缓存
+        AffixCacheHolder holder = (AffixCacheHolder) (Object) itemStack;
+        CachedAffixes cached = holder.affix_core$getCachedAffixes();
+        if (cached != null && cached.tag() == nbt && isSizeConsistent(cached, affixList)) {
+            return cached.affixes();
         }
-        
-        // 缓存无效或不存在，重新构建
-        List<Affix> affixes = new ArrayList<>();
-        ListTag affixList = itemStack.getOrCreateTag().getList(AFFIX_TAG_KEY, Tag.TAG_COMPOUND);
 
-        for (int i = 0; i < affixList.size(); i++) {
-            affixes.add(Affix.fromNBT(affixList.getCompound(i)));
+        // 标签被替换（如复制物品、网络同步或 /data 等外部修改）后才计算内容哈希；
+        // 物品上保存的 AffixesHash 可能来自修改前的词缀列表，只作参考，不能代替实际内容
+        int stamp = affixList.hashCode();
+        if (nbt.contains(AFFIX_HASH_KEY, Tag.TAG_INT) && nbt.getInt(AFFIX_HASH_KEY) != stamp) {
+            AffixCoreMod.LOGGER.debug("Affixes tag of {} changed without AffixManager.markAffixesChanged",
+                    itemStack.getHoverName().getString());
         }
 
-        // 更新缓存
-        affixCache.put(itemId, new WeakReference<>(affixes));
+        // 物品的副本与原物品有相同的唯一ID，内容哈希一致时复用共享的解析结果
+        UUID itemId = getItemUniqueId(itemStack);
+        CachedAffixes shared = AFFIX_CACHE.get(itemId);
+        List<Affix> affixes;
+        if (shared != null && shared.stamp() == stamp) {
+            affixes = shared.affixes();
+        } else {
+            // 缓存无效或不存在，重新构建
+            affixes = new ArrayList<>();
+            for (int i = 0; i < affixList.size(); i++) {
+                affixes.add(Affix.fromNBT(affixList.getCompound(i)));
+            }
+            // 共享缓存只按内容哈希匹配，不保存标签，避免被淘汰前一直持有已丢弃物品的 NBT
+            AFFIX_CACHE.put(itemId, new CachedAffixes(null, stamp, affixes));
+        }
+
+        // 更新缓存，计算出的哈希只保存在物品的缓存中，不写回 NBT
+        holder.affix_core$setCachedAffixes(new CachedAffixes(nbt, stamp, affixes));
         
         return affixes;
     }
-    
+
     /**
-     * 验证缓存是否仍然有效
+     * 物品的词缀列表被修改后更新其版本戳，并清除物品上缓存的解析结果。
+     * 原地修改 Affixes 标签的代码（包括其他模组）都必须调用此方法，否则物品上的缓存不会重新解析
      */
-    private static boolean isCacheValid(List<Affix> cachedAffixes, ListTag currentAffixList) {
-        if (cachedAffixes.size() != currentAffixList.size()) {
-            return false;
+    public static void markAffixesChanged(ItemStack itemStack) {
+        if (itemStack == null || !itemStack.hasTag()) {
+            return;
         }
-        
-        // 检查每个词缀的哈希值是否一致
-        for (int i = 0; i < cachedAffixes.size(); i++) {
-            if (i >= currentAffixList.size()) {
-                return false;
-            }
-            
-            CompoundTag cachedAffix = cachedAffixes.get(i).toNBT();
-            CompoundTag currentNBT = currentAffixList.getCompound(i);
-            
-            // 比较词缀哈希值
-            if (currentNBT.hashCode() != cachedAffix.hashCode()) {
-                return false;
-            }
+        CompoundTag nbt = itemStack.getOrCreateTag();
+        if (nbt.contains(AFFIX_TAG_KEY, Tag.TAG_LIST)) {
+            nbt.putInt(AFFIX_HASH_KEY, nbt.getList(AFFIX_TAG_KEY, Tag.TAG_COMPOUND).hashCode());
+        } else {
+            nbt.remove(AFFIX_HASH_KEY);
         }
-        
-        return true;
+        // 物品上的缓存只按标签引用判断，需要在这里清除
+        ((AffixCacheHolder) (Object) itemStack).affix_core$setCachedAffixes(null);
+    }
+
+    // 检查物品上缓存的解析结果与词缀列表的数量是否一致
+    private static boolean isSizeConsistent(CachedAffixes cached, ListTag affixList) {
+        if (cached.affixes().size() == affixList.size()) {
+            return true;
+        }
+        AffixCoreMod.LOGGER.warn("Affixes tag changed without AffixManager.markAffixesChanged ({} cached, {} in NBT), reparsing",
+                cached.affixes().size(), affixList.size());
+        return false;
     }
 
     /**
@@ -131,10 +159,11 @@ public class AffixManager {
         ListTag affixList = itemStack.getOrCreateTag().getList(AFFIX_TAG_KEY, Tag.TAG_COMPOUND);
         affixList.add(affix.toNBT());
         itemStack.getOrCreateTag().put(AFFIX_TAG_KEY, affixList);
+        markAffixesChanged(itemStack);
         
         // 添加词缀后，使缓存失效
-        UUID itemId = getItemUniqueId(itemStack);
-        affixCache.remove(itemId);
+        invalidateCache(itemStack);
+        AffixIndex.invalidateAll();
     }
 
     /**
@@ -172,14 +201,15 @@ public class AffixManager {
         // 如果词缀列表为空，则移除整个标签
         if (affixList.isEmpty()) {
             itemStack.getOrCreateTag().remove(AFFIX_TAG_KEY);
-            if (itemStack.getOrCreateTag().isEmpty()) {
-                itemStack.setTag(null);
-            }
+        }
+        markAffixesChanged(itemStack);
+        if (itemStack.getOrCreateTag().isEmpty()) {
+            itemStack.setTag(null);
         }
         
         // 清理缓存
-        UUID itemId = getItemUniqueId(itemStack);
-        affixCache.remove(itemId);
+        invalidateCache(itemStack);
+        AffixIndex.invalidateAll();
 
         return true;
     }
@@ -193,15 +223,32 @@ public class AffixManager {
         }
         CompoundTag nbt = itemStack.getOrCreateTag();
 
+        // 清理缓存，需要在移除唯一ID之前进行
+        invalidateCache(itemStack);
+        AffixIndex.invalidateAll();
+
         nbt.remove(AFFIX_TAG_KEY);
+        nbt.remove(AFFIX_HASH_KEY);
         nbt.remove(ITEM_UUID_NBT_KEY);
         if (nbt.isEmpty()) {
             itemStack.setTag(null);
         }
-        
-        // 清理缓存
-        UUID itemId = getItemUniqueId(itemStack);
-        affixCache.remove(itemId);
+    }
+
+    // 丢弃物品上和共享缓存中的词缀解析结果
+    private static void invalidateCache(ItemStack itemStack) {
+        ((AffixCacheHolder) (Object) itemStack).affix_core$setCachedAffixes(null);
+        CompoundTag nbt = itemStack.getTag();
+        if (nbt != null && nbt.hasUUID(ITEM_UUID_NBT_KEY)) {
+            AFFIX_CACHE.remove(nbt.getUUID(ITEM_UUID_NBT_KEY));
+        }
+    }
+
+    /**
+     * 按物品唯一ID共享的词缀缓存，用于调整容量和查看统计
+     */
+    public static LruCache<UUID, CachedAffixes> getAffixCache() {
+        return AFFIX_CACHE;
     }
     
     /**
@@ -225,55 +272,78 @@ public class AffixManager {
         return UUID.fromString("00000000-0000-0000-0000-000000000000");
     }
 
+    // 全局范围的冷却使用的持有者ID，不能与 getItemUniqueId 在无法分配ID时返回的全零UUID相同
+    private static final UUID GLOBAL_COOLDOWN_OWNER = UUID.nameUUIDFromBytes("affix_core:global".getBytes(StandardCharsets.UTF_8));
+
     /**
-     * 生成基于词缀UUID的冷却键
+     * 检查冷却是否结束（基于词缀UUID），实体范围的冷却退化为按物品计算
      */
-    public static String generateCooldownKey(Affix affix) {
-        if (affix == null || affix.uuid() == null) return "";
-        return "affix_" + affix.uuid();
+    public static boolean isCooldownOver(ItemStack itemStack, Affix affix, Level world) {
+        return isCooldownOver(null, itemStack, affix, world);
     }
-        
+
     /**
-     * 检查冷却是否结束（基于词缀UUID）
+     * 检查冷却是否结束，按词缀的冷却范围和冷却组计算
+     *
+     * @param owner 词缀的持有者，用于实体范围的冷却，为 null 时按物品计算
      */
-    public static boolean isCooldownOver(ItemStack itemStack, Affix affix, Level world) {
-        if (affix == null || affix.uuid() == null) return true;
+    public static boolean isCooldownOver(@Nullable LivingEntity owner, ItemStack itemStack, Affix affix, Level world) {
+        if (affix == null || affix.cooldownKey() == null) return true;
 
-        UUID itemId = getItemUniqueId(itemStack);
-        String cooldownKey = generateCooldownKey(affix);
-        Map<String, Long> cooldownMap = affixCooldowns.get(itemId);
+        return COOLDOWNS.isCooldownOver(getCooldownOwner(owner, itemStack, affix), affix.cooldownKey(),
+                world.getGameTime());
+    }
 
-        if (cooldownMap == null) return true;
+    /**
+     * 设置冷却（基于词缀UUID），实体范围的冷却退化为按物品计算
+     */
+    public static void setCooldown(ItemStack itemStack, Affix affix, long cooldownTicks, Level world) {
+        setCooldown(null, itemStack, affix, cooldownTicks, world);
+    }
 
-        Long expireTime = cooldownMap.get(cooldownKey);
-        if (expireTime == null) return true;
+    /**
+     * 设置冷却，按词缀的冷却范围和冷却组计算
+     *
+     * @param owner 词缀的持有者，用于实体范围的冷却，为 null 时按物品计算
+     */
+    public static void setCooldown(@Nullable LivingEntity owner, ItemStack itemStack, Affix affix,
+                                   long cooldownTicks, Level world) {
+        if (cooldownTicks <= 0 || affix == null || affix.cooldownKey() == null) return;
 
-        // 添加一个小的容差值
         long currentTime = world.getGameTime();
+        COOLDOWNS.setCooldown(getCooldownOwner(owner, itemStack, affix), affix.cooldownKey(),
+                currentTime + cooldownTicks, currentTime);
+    }
 
-        return expireTime <= (currentTime);
+    // 冷却所属的ID：物品唯一ID、持有者UUID或全局ID
+    private static UUID getCooldownOwner(@Nullable LivingEntity owner, ItemStack itemStack, Affix affix) {
+        return switch (affix.cooldownScope() != null ? affix.cooldownScope() : CooldownScope.ITEM) {
+            case GLOBAL -> GLOBAL_COOLDOWN_OWNER;
+            case ENTITY -> owner != null ? owner.getUUID() : getItemUniqueId(itemStack);
+            case ITEM -> getItemUniqueId(itemStack);
+        };
     }
 
     /**
-     * 设置冷却（基于词缀UUID）
+     * 清除指定物品的所有冷却数据
      */
-    public static void setCooldown(ItemStack itemStack, Affix affix, long cooldownTicks, Level world) {
-        if (cooldownTicks <= 0 || affix == null || affix.uuid() == null) return;
-            
+    public static void clearCooldowns(ItemStack itemStack) {
         UUID itemId = getItemUniqueId(itemStack);
-        String cooldownKey = generateCooldownKey(affix);
-            
-        long currentTime = world.getGameTime();
-        affixCooldowns.computeIfAbsent(itemId, k -> new ConcurrentHashMap<>())
-            .put(cooldownKey, currentTime + cooldownTicks);
+        COOLDOWNS.clearOwner(itemId);
     }
 
     /**
-     * 清除指定物品的所有冷却数据
+     * 清除实体范围内属于指定实体的所有冷却数据
      */
-    public static void clearCooldowns(ItemStack itemStack) {
-        UUID itemId = getItemUniqueId(itemStack);
-        affixCooldowns.remove(itemId);
+    public static void clearCooldowns(LivingEntity entity) {
+        COOLDOWNS.clearOwner(entity.getUUID());
+    }
+
+    /**
+     * 冷却存储，用于查看统计
+     */
+    public static CooldownStore getCooldownStore() {
+        return COOLDOWNS;
     }
     
     /**
@@ -287,8 +357,10 @@ public class AffixManager {
             return;
         }
         
+        markAffixesChanged(itemStack);
         UUID itemId = getItemUniqueId(itemStack);
-        affixCache.remove(itemId);
+        invalidateCache(itemStack);
+        AffixIndex.invalidateAll();
         AffixCoreMod.LOGGER.debug("已清除物品词缀缓存: {} (ID: {})", 
             itemStack.getHoverName().getString(), itemId);
     }
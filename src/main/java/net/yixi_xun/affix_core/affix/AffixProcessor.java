@@ -1,15 +1,18 @@
 package net.yixi_xun.affix_core.affix;
 
+import com.google.common.base.Suppliers;
 import net.minecraft.world.entity.Entity;
-import net.minecraft.world.entity.EquipmentSlot;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.item.ItemStack;
 import net.minecraftforge.eventbus.api.Event;
-import top.theillusivec4.curios.api.CuriosApi;
-import top.theillusivec4.curios.api.type.inventory.ICurioStacksHandler;
+import net.yixi_xun.affix_core.ACConfig;
+import net.yixi_xun.affix_core.api.expression.VariableFrame;
+import net.yixi_xun.affix_core.profiling.AffixJfrEvents;
+import net.yixi_xun.affix_core.profiling.AffixProfiler;
 
 import java.util.*;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static net.yixi_xun.affix_core.AffixCoreMod.LOGGER;
@@ -23,6 +26,28 @@ import static net.yixi_xun.affix_core.affix.operation.VariableOperation.getItemV
  */
 public class AffixProcessor {
 
+    // 预算耗尽后可以推迟到之后的 tick 执行的触发器，每 tick 都会重新触发，推迟后只保留最新的一次；
+    // on_custom_message 等依赖事件结果的触发器不能推迟
+    private static final long DEFERRABLE_TRIGGERS = TriggerRegistry.bit(TriggerRegistry.ON_TICK)
+            | TriggerRegistry.bit(TriggerRegistry.ON_USE_TICK);
+
+    // 被推迟的词缀触发，按实体和触发器合并，只在服务端线程访问
+    private static final Map<DeferredKey, Runnable> deferredDispatches = new LinkedHashMap<>();
+
+    // 每 tick 的时间预算（纳秒），0 表示不限制
+    private static long tickBudgetNanos;
+    private static int maxDeferredDispatches = 4096;
+    // 本 tick 已用于处理词缀的时间（纳秒）
+    private static long tickSpentNanos;
+    // 词缀触发的嵌套深度，只在最外层计时
+    private static int dispatchDepth;
+    private static boolean overBudgetThisTick;
+
+    // 统计
+    private static long deferredCount;
+    private static long droppedCount;
+    private static long overBudgetTicks;
+
     /**
      * 处理单个词缀的执行逻辑
      * 
@@ -36,36 +61,51 @@ public class AffixProcessor {
     public static void processSingleAffix(LivingEntity entity, Affix affix, ItemStack itemStack, 
                                          String trigger, Event event, 
                                          Consumer<AffixContext> eventVarSetter) {
+        processSingleAffix(entity, affix, itemStack, trigger, event,
+                sharedVariables(entity, trigger, event, eventVarSetter));
+    }
+
+    /**
+     * 处理单个词缀的执行逻辑，使用本次触发共享的变量
+     *
+     * @param sharedVariables 共享变量的提供者，只在词缀不处于冷却时调用，见 {@link #sharedVariables}
+     * @return 词缀是否执行了操作；执行后伤害、生命值等共享变量可能已经过时，调用方应重新创建共享变量
+     */
+    public static boolean processSingleAffix(LivingEntity entity, Affix affix, ItemStack itemStack,
+                                            String trigger, Event event, Supplier<VariableFrame> sharedVariables) {
+        AffixJfrEvents.Dispatch jfrEvent = new AffixJfrEvents.Dispatch();
+        jfrEvent.begin();
         try {
-            // 创建词缀上下文
+            // 先按冷却范围和冷却组检查冷却，处于冷却中的词缀不创建上下文
+            if (affix.cooldown() > 0 && !AffixManager.isCooldownOver(entity, itemStack, affix, entity.level())) {
+                return false;
+            }
+
+            // 创建词缀上下文，事件变量和 self 来自共享变量
+            long profileStart = AffixProfiler.begin();
             AffixContext context = new AffixContext(
                 entity.level(),
                 entity,
                 itemStack,
                 affix,
                 trigger,
-                event
+                event,
+                sharedVariables.get()
             );
 
-            // 设置事件特定变量
-            if (eventVarSetter != null) {
-                eventVarSetter.accept(context);
-            }
-
-            // 添加额外变量
+            // 添加额外变量，实体变量可能被前一个词缀修改，因此每个词缀单独读取
             var entityVariables = getEntityVariables(entity);
             context.getVariables().putAll(entityVariables);
             var itemVariables = getItemVariables(itemStack);
             context.getVariables().putAll(itemVariables);
-
-            // 检查冷却
-            if (affix.cooldown() > 0 && context.inCooldown()) {
-                return;
-            }
+            AffixProfiler.recordContext(affix, itemStack, entity, profileStart);
 
             // 检查条件
-            if (!affix.checkCondition(context)) {
-                return;
+            profileStart = AffixProfiler.begin();
+            boolean conditionMet = affix.checkCondition(context);
+            AffixProfiler.recordCondition(affix, profileStart);
+            if (!conditionMet) {
+                return false;
             }
 
             // 设置冷却
@@ -74,13 +114,34 @@ public class AffixProcessor {
             }
 
             // 执行操作
+            jfrEvent.executed = true;
             affix.execute(context);
+            return true;
 
         } catch (Exception e) {
             LOGGER.error("处理词缀时发生错误: {}", affix, e);
+            // 操作可能已部分执行
+            return jfrEvent.executed;
+        } finally {
+            if (jfrEvent.shouldCommit()) {
+                jfrEvent.trigger = trigger;
+                jfrEvent.affix = affix.uuid().toString();
+                jfrEvent.operationType = affix.operation() != null ? affix.operation().getType() : null;
+                jfrEvent.entityType = AffixJfrEvents.entityType(entity);
+                jfrEvent.commit();
+            }
         }
     }
     
+    /**
+     * 创建本次触发共享变量的提供者，共享变量在第一次使用时创建，之后复用。
+     * 共享变量是创建时的快照，词缀执行操作后应重新创建提供者
+     */
+    public static Supplier<VariableFrame> sharedVariables(LivingEntity entity, String trigger, Event event,
+                                                          Consumer<AffixContext> eventVarSetter) {
+        return Suppliers.memoize(() -> AffixContext.createSharedVariables(entity, trigger, event, eventVarSetter));
+    }
+
     /**
      * 处理物品移除逻辑（专门用于 on_remove 事件）
      * 
@@ -143,118 +204,178 @@ public class AffixProcessor {
         // 只在服务端处理
         if (living.level().isClientSide()) return;
 
+        long start = beginDispatch();
+        long profileStart = AffixProfiler.begin();
         try {
-            // 预先构建词缀到槽位的映射，避免重复查询
-            Map<Affix, ItemStack> affixLocationMap = new HashMap<>();
-            List<Affix> validAffixes = new ArrayList<>();
+            // 从实体的词缀索引中取出该触发器的词缀，索引中已按优先级排好序（数值越大优先级越高）
+            int triggerId = TriggerRegistry.getId(trigger);
+            List<AffixIndex.Entry> entries = AffixIndex.getEntries(living, triggerId);
+            if (entries.isEmpty()) return;
+
+            // 预算耗尽时推迟非战斗触发器
+            if ((DEFERRABLE_TRIGGERS & TriggerRegistry.bit(triggerId)) != 0) {
+                if (isOverBudget()) {
+                    defer(new DeferredKey(living, triggerId), () -> {
+                        if (!living.isRemoved()) {
+                            processAffixTriggerWithVars(living, trigger, event, eventVarSetter);
+                        }
+                    });
+                    return;
+                }
+                // 本次触发已经执行，之前推迟的同一触发已经过时，不再重复执行
+                if (!deferredDispatches.isEmpty()) {
+                    deferredDispatches.remove(new DeferredKey(living, triggerId));
+                }
+            }
 
-            // 收集所有装备槽位上的词缀，并进行预过滤
-            collectEquipmentAffixes(living, trigger, affixLocationMap, validAffixes);
+            // 事件变量和 self 在词缀执行操作前可以复用，所有词缀都在冷却中时不计算；
+            // 操作可能修改伤害或生命值，因此有词缀执行后为之后的词缀重新创建
+            Supplier<VariableFrame> sharedVariables = sharedVariables(living, trigger, event, eventVarSetter);
+            for (AffixIndex.Entry entry : entries) {
+                if (processSingleAffix(living, entry.affix(), entry.stack(), trigger, event, sharedVariables)) {
+                    sharedVariables = sharedVariables(living, trigger, event, eventVarSetter);
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.error("处理词缀触发时发生错误", e);
+        } finally {
+            AffixProfiler.recordTrigger(trigger, profileStart);
+            endDispatch(start);
+        }
+    }
 
-            // 收集所有Curios槽位上的词缀
-            getAllCuriosAffixes(living, trigger, affixLocationMap, validAffixes);
+    /**
+     * 处理单个物品的词缀
+     */
+    public static void processSingleItemAffix(Entity entity, String slot, ItemStack stack, String trigger, Event event, Consumer<AffixContext> eventVarSetter) {
+        // 只处理实体
+        if (!(entity instanceof LivingEntity living)) return;
+
+        // 只在服务端处理
+        if (living.level().isClientSide()) return;
+
+        long start = beginDispatch();
+        long profileStart = AffixProfiler.begin();
+        try {
+            int triggerId = TriggerRegistry.getId(trigger);
+            List<Affix> validAffixes = getAffixes(stack).stream()
+                    .filter(affix -> affix != null && affix.hasTrigger(triggerId) && affix.canTriggerInSlot(slot))
+                    .collect(Collectors.toList());
 
             if (validAffixes.isEmpty()) return;
 
-            // 按优先级排序（数值越大优先级越高）
+            // 按优先级排序
             validAffixes.sort(Comparator.comparingLong(Affix::priority).reversed());
 
-            // 按优先级顺序处理每个词缀
-            processAffixesInOrder(living, trigger, event, eventVarSetter, affixLocationMap, validAffixes);
+            // 按优先级顺序处理每个词缀，有词缀执行后重新创建共享变量
+            Supplier<VariableFrame> sharedVariables = sharedVariables(living, trigger, event, eventVarSetter);
+            for (Affix affix : validAffixes) {
+                if (processSingleAffix(living, affix, stack, trigger, event, sharedVariables)) {
+                    sharedVariables = sharedVariables(living, trigger, event, eventVarSetter);
+                }
+            }
         } catch (Exception e) {
             LOGGER.error("处理词缀触发时发生错误", e);
+        } finally {
+            AffixProfiler.recordTrigger(trigger, profileStart);
+            endDispatch(start);
         }
     }
 
+    // --- 每 tick 时间预算 ---
+
     /**
-     * 收集装备槽位上的词缀
+     * 服务端 tick 开始时调用：重置预算，并在预算内执行之前被推迟的词缀触发
      */
-    private static void collectEquipmentAffixes(LivingEntity living, String trigger,
-                                               Map<Affix, ItemStack> affixLocationMap, List<Affix> validAffixes) {
-        for (EquipmentSlot slot : EquipmentSlot.values()) {
-            ItemStack stack = living.getItemBySlot(slot);
-            if (stack.isEmpty()) continue;
-
-            List<Affix> slotAffixes = getAffixes(stack);
-            for (Affix affix : slotAffixes) {
-                if (affix != null && isTriggerMatch(affix.trigger(), trigger) && affix.canTriggerInSlot(slot.getName())) {
-                    affixLocationMap.put(affix, stack);
-                    validAffixes.add(affix);
-                }
-            }
+    public static void startTick() {
+        if (overBudgetThisTick) {
+            overBudgetTicks++;
+        }
+        tickBudgetNanos = (long) (ACConfig.AFFIX_TICK_BUDGET_MS.get() * 1_000_000L);
+        maxDeferredDispatches = ACConfig.MAX_DEFERRED_AFFIX_DISPATCHES.get();
+        tickSpentNanos = 0;
+        overBudgetThisTick = false;
+
+        // 只执行本 tick 开始时已在队列中的触发，执行过程中再次被推迟的留到下一 tick
+        int pending = deferredDispatches.size();
+        while (pending-- > 0 && !isOverBudget()) {
+            Iterator<Runnable> iterator = deferredDispatches.values().iterator();
+            Runnable dispatch = iterator.next();
+            iterator.remove();
+            dispatch.run();
         }
     }
 
-    public static void getAllCuriosAffixes(LivingEntity entity, String trigger, Map<Affix, ItemStack> affixLocationMap, List<Affix> validAffixes) {
-        if (entity == null) return;
+    private static boolean isOverBudget() {
+        if (tickBudgetNanos <= 0) return false;
+        long spent = tickSpentNanos;
+        if (dispatchDepth > 0) {
+            spent += System.nanoTime() - currentDispatchStart;
+        }
+        if (spent >= tickBudgetNanos) {
+            overBudgetThisTick = true;
+            return true;
+        }
+        return false;
+    }
 
-        try {
-            CuriosApi.getCuriosInventory(entity).ifPresent(inventory -> {
-                for (Map.Entry<String, ICurioStacksHandler> entry : inventory.getCurios().entrySet()) {
-                    collectAffixesFromHandler(entry.getValue(),  trigger, affixLocationMap, validAffixes);
-                }
-            });
-        } catch (Exception e) {
-            LOGGER.warn("获取所有Curios词缀时出错: {}", e.getMessage());
+    // 同一实体的同一触发器已在队列中时用新的触发替换旧的，保留原来的排队位置
+    private static void defer(DeferredKey key, Runnable dispatch) {
+        if (deferredDispatches.replace(key, dispatch) != null) {
+            return;
+        }
+        if (deferredDispatches.size() >= maxDeferredDispatches) {
+            droppedCount++;
+            return;
         }
+        deferredDispatches.put(key, dispatch);
+        deferredCount++;
     }
 
-    private static void collectAffixesFromHandler(ICurioStacksHandler handler, String trigger, Map<Affix, ItemStack> affixLocationMap, List<Affix> validAffixes) {
-        for (int i = 0; i < handler.getSlots(); i++) {
-            ItemStack stack = handler.getStacks().getStackInSlot(i);
-            if (stack.isEmpty()) continue;
-
-            List<Affix> slotAffixes = AffixManager.getAffixes(stack);
-            if (slotAffixes.isEmpty()) continue;
-            for (Affix affix : slotAffixes) {
-                if (affix != null && isTriggerMatch(affix.trigger(), trigger) && affix.canTriggerInSlot(handler.getIdentifier())) {
-                    affixLocationMap.put(affix, stack);
-                    validAffixes.add(affix);
-                }
-            }
+    // 推迟队列的键，实体按引用比较
+    private record DeferredKey(LivingEntity entity, int triggerId) {
+    }
+
+    // 最外层词缀触发的开始时间
+    private static long currentDispatchStart;
+
+    private static long beginDispatch() {
+        if (dispatchDepth++ == 0) {
+            currentDispatchStart = System.nanoTime();
         }
+        return currentDispatchStart;
     }
 
-    /**
-     * 按优先级顺序处理词缀
-     */
-    private static void processAffixesInOrder(LivingEntity living, String trigger, Event event,
-                                             Consumer<AffixContext> eventVarSetter,
-                                             Map<Affix, ItemStack> affixLocationMap, List<Affix> validAffixes) {
-        for (Affix affix : validAffixes) {
-            ItemStack foundStack = affixLocationMap.get(affix);
-            if (foundStack == null) continue;
-
-            processSingleAffix(living, affix, foundStack, trigger, event, eventVarSetter);
+    private static void endDispatch(long start) {
+        if (--dispatchDepth == 0) {
+            tickSpentNanos += System.nanoTime() - start;
         }
     }
 
     /**
-     * 处理单个物品的词缀
+     * 本 tick 已用于处理词缀的时间（毫秒）
      */
-    public static void processSingleItemAffix(Entity entity, String slot, ItemStack stack, String trigger, Event event, Consumer<AffixContext> eventVarSetter) {
-        // 只处理实体
-        if (!(entity instanceof LivingEntity living)) return;
+    public static double getTickSpentMillis() {
+        return tickSpentNanos / 1_000_000.0;
+    }
 
-        // 只在服务端处理
-        if (living.level().isClientSide()) return;
+    public static double getTickBudgetMillis() {
+        return tickBudgetNanos / 1_000_000.0;
+    }
 
-        try {
-            List<Affix> validAffixes = getAffixes(stack).stream()
-                    .filter(affix -> affix != null && isTriggerMatch(affix.trigger(), trigger) && affix.canTriggerInSlot(slot))
-                    .collect(Collectors.toList());
+    public static int getDeferredQueueSize() {
+        return deferredDispatches.size();
+    }
 
-            if (validAffixes.isEmpty()) return;
+    public static long getDeferredCount() {
+        return deferredCount;
+    }
 
-            // 按优先级排序
-            validAffixes.sort(Comparator.comparingLong(Affix::priority).reversed());
+    public static long getDroppedCount() {
+        return droppedCount;
+    }
 
-            // 按优先级顺序处理每个词缀
-            for (Affix affix : validAffixes) {
-                processSingleAffix(living, affix, stack, trigger, event, eventVarSetter);
-            }
-        } catch (Exception e) {
-            LOGGER.error("处理词缀触发时发生错误", e);
-        }
+    public static long getOverBudgetTicks() {
+        return overBudgetTicks;
     }
-}
\ No newline at end of file
+}
@@ -10,6 +10,7 @@ import net.minecraft.world.phys.EntityHitResult;
 import net.minecraft.world.phys.HitResult;
 import net.minecraft.world.phys.Vec3;
 import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.entity.EntityLeaveLevelEvent;
 import net.minecraftforge.event.entity.ProjectileImpactEvent;
 import net.minecraftforge.event.entity.item.ItemTossEvent;
 import net.minecraftforge.event.entity.living.*;
@@ -125,6 +126,11 @@ public class AffixTrigger {
     }
 
     private static void handleEquipmentChange(Event event, LivingEntity entity, ItemStack from, ItemStack to, String slot) {
+        // 装备变化后重建实体的词缀索引（索引只在服务端使用）
+        if (!entity.level().isClientSide()) {
+            AffixIndex.invalidate(entity);
+        }
+
         // 移除旧装备提供的词缀效果
         if (!from.isEmpty()) {
             List<Affix> affixes = getAffixes(from);
@@ -163,7 +169,21 @@ public class AffixTrigger {
      */
     @SubscribeEvent
     public static void onTick(LivingEvent.LivingTickEvent event) {
-        processAffixTrigger(event.getEntity(), "on_tick", event);
+        LivingEntity entity = event.getEntity();
+        // 没有 on_tick 词缀的实体直接跳过
+        if (entity.level().isClientSide() || !AffixIndex.mayHaveTickAffixes(entity)) return;
+        processAffixTrigger(entity, "on_tick", event);
+    }
+
+    /**
+     * 实体离开世界监听器
+     */
+    @SubscribeEvent
+    public static void onLeaveLevel(EntityLeaveLevelEvent event) {
+        if (event.getLevel().isClientSide()) return;
+        if (event.getEntity() instanceof LivingEntity living) {
+            AffixIndex.remove(living);
+        }
     }
 
     /**
@@ -354,7 +374,11 @@ public class AffixTrigger {
      */
     @SubscribeEvent
     public static void onServerTick(TickEvent.ServerTickEvent event) {
-        if (event.phase != TickEvent.Phase.END) return;
+        if (event.phase == TickEvent.Phase.START) {
+            // 重置本 tick 的词缀时间预算并执行之前推迟的词缀
+            AffixProcessor.startTick();
+            return;
+        }
         event.getServer().getPlayerList().getPlayers().forEach(player ->
                 lastPlayerPositions.put(player, player.position()));
     }
@@ -0,0 +1,31 @@
+package net.yixi_xun.affix_core.affix;
+
+/**
+ * 冷却的作用范围
+ * <ul>
+ *     <li>item - 按物品计算，同一词缀在不同物品上各自冷却（默认）</li>
+ *     <li>entity - 按持有者计算，同一实体身上的所有物品共享冷却</li>
+ *     <li>global - 全服共享一个冷却</li>
+ * </ul>
+ */
+public enum CooldownScope {
+    ITEM("item"), ENTITY("entity"), GLOBAL("global");
+
+    private final String name;
+
+    CooldownScope(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public static CooldownScope fromString(String name) {
+        if (name == null || name.isEmpty()) return ITEM;
+        for (CooldownScope scope : values()) {
+            if (scope.name.equalsIgnoreCase(name)) return scope;
+        }
+        return ITEM;
+    }
+}
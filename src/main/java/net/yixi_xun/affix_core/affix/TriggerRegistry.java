@@ -0,0 +1,134 @@
+package net.yixi_xun.affix_core.affix;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 触发器注册表
+ * 为每个触发器名称分配一个从 0 开始的整数 id，前 64 个触发器可以用 long 位掩码表示，
+ * 词缀预先计算其触发器掩码，匹配时只需一次按位与运算。
+ * 超出 64 个的触发器仍然有 id，但不占用掩码位，匹配时退回字符串比较。
+ * <p>
+ * 其他模组可以通过 {@link #register(String)} 注册自己的触发器，注册应在模组初始化时完成。
+ * 物品 NBT 中的触发器名称只会被查找而不会被注册，未注册的名称不会被分发，也不占用 id。
+ */
+public class TriggerRegistry {
+
+    // 可以用位掩码表示的触发器数量
+    public static final int MASK_SIZE = Long.SIZE;
+
+    private static final Map<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static final List<String> NAMES = new ArrayList<>();
+
+    // 内置触发器
+    public static final int ON_ATTACK = register("on_attack");
+    public static final int ON_HURT = register("on_hurt");
+    public static final int ON_KILL = register("on_kill");
+    public static final int ON_DEATH = register("on_death");
+    public static final int ON_TICK = register("on_tick");
+    public static final int ON_EFFECT_ADD = register("on_effect_add");
+    public static final int ON_EQUIP = register("on_equip");
+    public static final int ON_UNEQUIP = register("on_unequip");
+    public static final int ON_ANY_EQUIP = register("on_any_equip");
+    public static final int ON_ANY_UNEQUIP = register("on_any_unequip");
+    public static final int ON_REMOVE = register("on_remove");
+    public static final int ON_RIGHT_CLICK = register("on_right_click");
+    public static final int ON_RIGHT_CLICK_BLOCK = register("on_right_click_block");
+    public static final int ON_RIGHT_CLICK_ENTITY = register("on_right_click_entity");
+    public static final int ON_LEFT_CLICK_ENTITY = register("on_left_click_entity");
+    public static final int ON_LEFT_CLICK_BLOCK = register("on_left_click_block");
+    public static final int ON_USE_START = register("on_use_start");
+    public static final int ON_USE_TICK = register("on_use_tick");
+    public static final int ON_USE_FINISH = register("on_use_finish");
+    public static final int ON_DROP = register("on_drop");
+    public static final int ON_CUSTOM_MESSAGE = register("on_custom_message");
+    public static final int ON_PROJECTILE_HIT_ENTITY = register("on_projectile_hit_entity");
+    public static final int ON_PROJECTILE_HIT_BLOCK = register("on_projectile_hit_block");
+
+    /**
+     * 注册触发器，已注册的名称返回原有 id
+     */
+    public static int register(String name) {
+        Integer id = IDS.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (NAMES) {
+            id = IDS.get(name);
+            if (id == null) {
+                id = NAMES.size();
+                NAMES.add(name);
+                // 先写入名称表再发布 id，保证读到 id 的线程一定能读到名称
+                IDS.put(name, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * 获取触发器 id，未注册时返回 -1
+     */
+    public static int getId(String name) {
+        Integer id = IDS.get(name);
+        return id != null ? id : -1;
+    }
+
+    public static String getName(int id) {
+        synchronized (NAMES) {
+            return NAMES.get(id);
+        }
+    }
+
+    /**
+     * 已注册的触发器数量
+     */
+    public static int size() {
+        return IDS.size();
+    }
+
+    /**
+     * 触发器对应的掩码位，超出掩码范围时为 0
+     */
+    public static long bit(int id) {
+        return id >= 0 && id < MASK_SIZE ? 1L << id : 0L;
+    }
+
+    /**
+     * 计算逗号分隔的触发器列表的掩码，列表中未注册的触发器被忽略
+     */
+    public static long mask(String triggers) {
+        if (triggers == null || triggers.isEmpty()) {
+            return 0L;
+        }
+        // 单个触发器无需拆分
+        if (triggers.indexOf(',') < 0) {
+            return bit(getId(triggers));
+        }
+        long mask = 0L;
+        for (String name : triggers.split(",")) {
+            if (!name.isEmpty()) {
+                mask |= bit(getId(name));
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * 判断触发器列表是否包含指定的触发器
+     *
+     * @param mask 触发器列表的掩码
+     * @param triggers 逗号分隔的触发器列表，触发器超出掩码范围时用于字符串比较
+     * @param id 要检查的触发器 id
+     */
+    public static boolean matches(long mask, String triggers, int id) {
+        if (id < 0) {
+            return false;
+        }
+        if (id < MASK_SIZE) {
+            return (mask & (1L << id)) != 0;
+        }
+        return AffixProcessor.isTriggerMatch(triggers, getName(id));
+    }
+}
@@ -8,6 +8,7 @@ import net.minecraft.world.entity.ai.attributes.AttributeModifier;
 import net.minecraftforge.registries.ForgeRegistries;
 import net.yixi_xun.affix_core.AffixCoreMod;
 import net.yixi_xun.affix_core.affix.AffixContext;
+import net.yixi_xun.affix_core.api.expression.CompiledExpression;
 
 import java.util.*;
 
@@ -22,10 +23,12 @@ public class AttributeOperation extends BaseOperation {
 
     private final ResourceLocation attributeId;
     private final String amountExpression;
+    private final CompiledExpression compiledAmount;
     private final AttributeModifier.Operation operation;
     private final String name;
     private final boolean isPermanent;
     private final String durationExpression;
+    private final CompiledExpression compiledDuration;
     private final String target;
     private final boolean shouldRemove;
 
@@ -35,10 +38,12 @@ public class AttributeOperation extends BaseOperation {
                              String target, boolean shouldRemove) {
         this.attributeId = attributeId != null ? attributeId : ResourceLocation.tryParse("generic.attack_damage");
         this.amountExpression = amountExpression != null ? amountExpression : "0";
+        this.compiledAmount = compileExpression(this.amountExpression);
         this.operation = operation != null ? operation : AttributeModifier.Operation.ADDITION;
         this.name = name != null && !name.isEmpty() ? name : "Affix Attribute Modifier";
         this.isPermanent = isPermanent;
         this.durationExpression = durationExpression != null ? durationExpression : "100";
+        this.compiledDuration = compileExpression(this.durationExpression);
         this.target = target != null ? target : "self";
         this.shouldRemove = shouldRemove;
     }
@@ -55,7 +60,7 @@ public class AttributeOperation extends BaseOperation {
             return;
         }
 
-        double computedAmount = evaluateOrDefaultValue(amountExpression, context.getVariables(), 0.0);
+        double computedAmount = evaluateOrDefaultValue(compiledAmount, context.getVariables(), 0.0);
         UUID uuid = generateUUID(context);
         AttributeModifier modifier = new AttributeModifier(uuid, name, computedAmount, operation);
 
@@ -92,7 +97,7 @@ public class AttributeOperation extends BaseOperation {
      */
     private void scheduleRemoval(AffixContext context, AttributeModifier modifier, 
                                AttributeInstance attributeInstance, String key) {
-        int duration = Math.max(1, (int) evaluateOrDefaultValue(durationExpression, context.getVariables(), 100));
+        int duration = Math.max(1, (int) evaluateOrDefaultValue(compiledDuration, context.getVariables(), 100));
         MODIFIERS.put(modifier, context.getWorld().getGameTime() + duration);
         
         queueServerWork(duration, () -> {
@@ -8,6 +8,7 @@ import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
 import net.yixi_xun.affix_core.affix.AffixContext;
 import net.yixi_xun.affix_core.api.ExpressionHelper;
+import net.yixi_xun.affix_core.api.expression.CompiledExpression;
 
 import java.util.Map;
 import java.util.UUID;
@@ -173,6 +174,33 @@ public abstract class BaseOperation implements IOperation {
         }
         return ExpressionHelper.evaluate(expression, vars);
     }
+
+    /**
+     * 安全地计算已编译的表达式值
+     * @param expression 编译后的表达式，为null时返回默认值
+     * @param vars 上下文变量
+     * @param defaultValue 默认值
+     * @return 计算结果
+     */
+    protected static double evaluateOrDefaultValue(CompiledExpression expression, Map<String, Object> vars, double defaultValue) {
+        if (expression == null) {
+            return defaultValue;
+        }
+        return ExpressionHelper.evaluate(expression, vars);
+    }
+
+    /**
+     * 在创建操作时编译表达式，使语法错误在加载词缀时即被发现
+     * @param expression 表达式字符串
+     * @return 编译后的表达式，表达式为空时返回null
+     * @throws IllegalArgumentException 表达式存在语法错误时抛出
+     */
+    protected static CompiledExpression compileExpression(String expression) {
+        if (expression == null || expression.trim().isEmpty()) {
+            return null;
+        }
+        return ExpressionHelper.compile(expression);
+    }
     
     /**
      * 标准化的数学运算
@@ -4,6 +4,7 @@ import net.minecraft.nbt.CompoundTag;
 import net.minecraftforge.eventbus.api.Event;
 import net.yixi_xun.affix_core.AffixCoreMod;
 import net.yixi_xun.affix_core.affix.AffixContext;
+import net.yixi_xun.affix_core.api.expression.CompiledExpression;
 
 /**
  * 事件取消操作，用于取消或拒绝事件
@@ -11,9 +12,11 @@ import net.yixi_xun.affix_core.affix.AffixContext;
 public class CancelEventOperation extends BaseOperation {
 
     private final String cancelCondition;
+    private final CompiledExpression compiledCancelCondition;
 
     public CancelEventOperation(String cancelCondition) {
         this.cancelCondition = cancelCondition != null ? cancelCondition : "false";
+        this.compiledCancelCondition = compileExpression(this.cancelCondition);
     }
 
     @Override
@@ -28,7 +31,7 @@ public class CancelEventOperation extends BaseOperation {
                 return;
             }
             
-            double result = evaluateOrDefaultValue(cancelCondition, context.getVariables(), 0.0);
+            double result = evaluateOrDefaultValue(compiledCancelCondition, context.getVariables(), 0.0);
             boolean shouldCancel = result > 1e-10;
             
             if (event.isCancelable()) {
@@ -13,12 +13,12 @@ import net.minecraft.world.entity.LivingEntity;
 import net.minecraftforge.event.entity.living.LivingHurtEvent;
 import net.yixi_xun.affix_core.ACConfig;
 import net.yixi_xun.affix_core.affix.AffixContext;
+import net.yixi_xun.affix_core.api.expression.CompiledExpression;
 
 import java.util.Comparator;
 import java.util.List;
 
 import static net.yixi_xun.affix_core.AffixCoreMod.LOGGER;
-import static net.yixi_xun.affix_core.api.ExpressionHelper.evaluate;
 import static net.yixi_xun.affix_core.api.HurtManager.extraHurt;
 
 /**
@@ -27,25 +27,31 @@ import static net.yixi_xun.affix_core.api.HurtManager.extraHurt;
 public class DealDamageOperation extends BaseOperation {
 
     private final String amountExpression;
+    private final CompiledExpression compiledAmount;
     private final String damageTypeId;
     private final boolean isExtraDamage;
     private final String target;
     private final String sourceEntity;
     private final boolean isAreaDamage;
     private final String maxEntitiesExpression;
+    private final CompiledExpression compiledMaxEntities;
     private final String rangeExpression;
+    private final CompiledExpression compiledRange;
 
     public DealDamageOperation(String amountExpression, String damageTypeId, String isExtraDamage, 
                               String targetString, String sourceEntity, String isAreaDamage, 
                               String maxEntitiesExpression, String rangeExpression) {
         this.amountExpression = amountExpression != null ? amountExpression : "1";
+        this.compiledAmount = compileExpression(this.amountExpression);
         this.damageTypeId = damageTypeId != null ? damageTypeId : "minecraft:magic";
         this.isExtraDamage = Boolean.parseBoolean(isExtraDamage);
         this.sourceEntity = sourceEntity != null ? sourceEntity : "";
         this.isAreaDamage = Boolean.parseBoolean(isAreaDamage);
         this.target = targetString != null ? targetString : "target";
         this.maxEntitiesExpression = maxEntitiesExpression != null ? maxEntitiesExpression : "0";
+        this.compiledMaxEntities = compileExpression(this.maxEntitiesExpression);
         this.rangeExpression = rangeExpression != null ? rangeExpression : "0";
+        this.compiledRange = compileExpression(this.rangeExpression);
     }
 
     @Override
@@ -75,7 +81,7 @@ public class DealDamageOperation extends BaseOperation {
         }
 
 
-        float finalAmount = (float) evaluateOrDefaultValue(amountExpression, context.getVariables(), 1.0);
+        float finalAmount = (float) evaluateOrDefaultValue(compiledAmount, context.getVariables(), 1.0);
 
         // 应用主目标伤害
         if (isExtraDamage) {
@@ -179,8 +185,8 @@ public class DealDamageOperation extends BaseOperation {
      */
 private void applyAreaDamage(AffixContext context, LivingEntity centerEntity, DamageSource source, float amount) {
     // 计算范围伤害参数
-    int maxEntities = (int) evaluate(maxEntitiesExpression, context.getVariables());
-    double range = evaluate(rangeExpression, context.getVariables());
+    int maxEntities = (int) evaluateOrDefaultValue(compiledMaxEntities, context.getVariables(), 0);
+    double range = evaluateOrDefaultValue(compiledRange, context.getVariables(), 0);
 
     // 应用配置限制：当范围小于0时，使用配置的最大范围
     double effectiveRange = range > 0 ? range : ACConfig.MAX_AREA_DAMAGE_RANGE.get();
@@ -4,6 +4,7 @@ import net.minecraft.nbt.CompoundTag;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraftforge.event.entity.living.LivingHealEvent;
 import net.yixi_xun.affix_core.affix.AffixContext;
+import net.yixi_xun.affix_core.api.expression.CompiledExpression;
 
 /**
  * 治疗操作，用于修改治疗量或直接治疗实体
@@ -41,12 +42,14 @@ public class HealingOperation extends BaseOperation {
     private final Mode mode;
     private final MathOperation operation;
     private final String amountExpression;
+    private final CompiledExpression compiledAmount;
     private final String target;
 
     public HealingOperation(Mode mode, MathOperation operation, String amountExpression, String target) {
         this.mode = mode != null ? mode : Mode.MODIFY;
         this.operation = operation != null ? operation : MathOperation.ADD;
         this.amountExpression = amountExpression != null ? amountExpression : "0";
+        this.compiledAmount = compileExpression(this.amountExpression);
         this.target = target != null ? target : "self";
     }
 
@@ -61,7 +64,7 @@ public class HealingOperation extends BaseOperation {
             return;
         }
 
-        double computedAmount = evaluateOrDefaultValue(amountExpression, context.getVariables(), 0.0);
+        double computedAmount = evaluateOrDefaultValue(compiledAmount, context.getVariables(), 0.0);
 
         switch (mode) {
             case MODIFY:
@@ -3,6 +3,7 @@ package net.yixi_xun.affix_core.affix.operation;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.world.entity.LivingEntity;
 import net.yixi_xun.affix_core.affix.AffixContext;
+import net.yixi_xun.affix_core.api.expression.CompiledExpression;
 
 /**
  * 生命值操作，包括设置生命值、设置伤害吸收值等
@@ -40,12 +41,14 @@ public class HealthOperation extends BaseOperation {
     private final Mode mode;
     private final MathOperation operation;
     private final String amountExpression;
+    private final CompiledExpression compiledAmount;
     private final String target;
 
     public HealthOperation(Mode mode, MathOperation operation, String amountExpression, String target) {
         this.mode = mode != null ? mode : Mode.HEALTH;
         this.operation = operation != null ? operation : MathOperation.SET;
         this.amountExpression = amountExpression != null ? amountExpression : "0";
+        this.compiledAmount = compileExpression(this.amountExpression);
         this.target = target != null ? target : "self";
     }
 
@@ -60,7 +63,7 @@ public class HealthOperation extends BaseOperation {
             return;
         }
 
-        double computedAmount = evaluateOrDefaultValue(amountExpression, context.getVariables(), 0.0);
+        double computedAmount = evaluateOrDefaultValue(compiledAmount, context.getVariables(), 0.0);
 
         switch (mode) {
             case HEALTH -> handleSetHealth(targetEntity, computedAmount);
@@ -10,6 +10,7 @@ import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.Level;
 import net.yixi_xun.affix_core.affix.AffixContext;
+import net.yixi_xun.affix_core.api.expression.CompiledExpression;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Map;
@@ -94,8 +95,10 @@ public class ItemOperation extends BaseOperation {
     private final OperationMode operationMode;
     private final TargetType targetType;
     private final String amountExpression;
+    private final CompiledExpression compiledAmount;
     private final String targetEntity;
     private final String itemFilter;
+    private final CompiledExpression compiledItemFilter;
     
     /**
      * 构造函数
@@ -110,8 +113,10 @@ public class ItemOperation extends BaseOperation {
         this.operationMode = OperationMode.fromString(operationMode);
         this.targetType = TargetType.fromString(targetType);
         this.amountExpression = amountExpression != null && !amountExpression.trim().isEmpty() ? amountExpression.trim() : "1";
+        this.compiledAmount = compileExpression(this.amountExpression);
         this.targetEntity = targetEntity != null ? targetEntity.trim() : "self";
         this.itemFilter = itemFilter != null ? itemFilter.trim() : "";
+        this.compiledItemFilter = compileExpression(this.itemFilter);
     }
     
     @Override
@@ -134,7 +139,7 @@ public class ItemOperation extends BaseOperation {
      * 计算物品数量
      */
     private int calculateItemCount(AffixContext context) {
-        double amount = evaluateOrDefaultValue(amountExpression, context.getVariables(), 1.0);
+        double amount = evaluateOrDefaultValue(compiledAmount, context.getVariables(), 1.0);
         return Math.max(1, (int) Math.round(Math.abs(amount)));
     }
     
@@ -203,7 +208,7 @@ public class ItemOperation extends BaseOperation {
      * 处理 itemFilter 中可能存在的 Index 引用
      */
     private boolean isItemMatchingFilter(Map<String, Object> variables, ItemStack stack, int index) {
-        if (itemFilter == null || itemFilter.isEmpty()) {
+        if (compiledItemFilter == null) {
             return true;
         }
         
@@ -211,7 +216,7 @@ public class ItemOperation extends BaseOperation {
             Map<String, Object> itemData = createItemData(stack);
             variables.put("index", index);
             variables.put("item", itemData);
-            return evaluateCondition(itemFilter, variables);
+            return evaluateCondition(compiledItemFilter, variables);
         } catch (Exception e) {
             LOGGER.error("物品筛选条件执行失败：filter={}, index={}", itemFilter, index, e);
             return false;
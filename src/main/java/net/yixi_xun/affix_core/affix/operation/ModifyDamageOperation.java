@@ -4,10 +4,11 @@ import net.minecraft.nbt.CompoundTag;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraftforge.event.entity.living.LivingHurtEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.yixi_xun.affix_core.affix.Affix;
 import net.yixi_xun.affix_core.affix.AffixContext;
+import net.yixi_xun.affix_core.affix.TriggerRegistry;
+import net.yixi_xun.affix_core.api.expression.CompiledExpression;
 
-import java.util.Arrays;
-import java.util.List;
 import java.util.Map;
 import java.util.WeakHashMap;
 
@@ -17,11 +18,13 @@ import java.util.WeakHashMap;
 public class ModifyDamageOperation extends BaseOperation {
 
     private final String amountExpression;
+    private final CompiledExpression compiledAmount;
     private final MathOperation operation;
     private final Map<LivingEntity, Double> damageModifiers = new WeakHashMap<>();
 
     public ModifyDamageOperation(String amountExpression, String operation) {
         this.amountExpression = amountExpression != null ? amountExpression : "damage";
+        this.compiledAmount = compileExpression(this.amountExpression);
         this.operation = MathOperation.fromString(operation);
     }
 
@@ -32,17 +35,17 @@ public class ModifyDamageOperation extends BaseOperation {
         }
         
         // 在攻击事件中立即生效
-        List<String> trigger = Arrays.asList(context.getAffix().trigger().split(","));
-        if ((trigger.contains("on_attack") || trigger.contains("on_hurt"))) {
+        Affix affix = context.getAffix();
+        if (affix.hasTrigger(TriggerRegistry.ON_ATTACK) || affix.hasTrigger(TriggerRegistry.ON_HURT)) {
            if ((context.getEvent() instanceof LivingHurtEvent event)) {
                float originalAmount = event.getAmount();
-               float calculatedValue = (float) evaluateOrDefaultValue(amountExpression, context.getVariables(), originalAmount);
+               float calculatedValue = (float) evaluateOrDefaultValue(compiledAmount, context.getVariables(), originalAmount);
                float newValue = operation.apply(originalAmount, calculatedValue);
                event.setAmount(newValue);
             }
         } else {
             // 非攻击事件中添加伤害修改器
-            damageModifiers.put(context.getOwner(), evaluateOrDefaultValue(amountExpression, context.getVariables(), 0));
+            damageModifiers.put(context.getOwner(), evaluateOrDefaultValue(compiledAmount, context.getVariables(), 0));
         }
     }
 
@@ -3,6 +3,7 @@ package net.yixi_xun.affix_core.affix.operation;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.world.item.ItemStack;
 import net.yixi_xun.affix_core.affix.AffixContext;
+import net.yixi_xun.affix_core.api.expression.CompiledExpression;
 
 /**
  * 修改耐久度操作，用于修改物品的当前耐久度或最大耐久度
@@ -11,6 +12,7 @@ public class ModifyDurabilityOperation extends BaseOperation {
 
     private final String target;
     private final String amountExpression;
+    private final CompiledExpression compiledAmount;
     private final OperationType operation;
 
     public enum OperationType {
@@ -33,6 +35,7 @@ public class ModifyDurabilityOperation extends BaseOperation {
     public ModifyDurabilityOperation(String target, String amountExpression, String operation) {
         this.target = target;
         this.amountExpression = amountExpression != null ? amountExpression : "durability";
+        this.compiledAmount = compileExpression(this.amountExpression);
         this.operation = OperationType.fromString(operation);
     }
 
@@ -51,11 +54,11 @@ public class ModifyDurabilityOperation extends BaseOperation {
         
         switch (operation) {
             case DURATION -> {
-                int newDamage = stack.getMaxDamage() - (int) evaluateOrDefaultValue(amountExpression, context.getVariables(), 0.0);
+                int newDamage = stack.getMaxDamage() - (int) evaluateOrDefaultValue(compiledAmount, context.getVariables(), 0.0);
                 stack.setDamageValue(Math.max(0, Math.min(newDamage, stack.getMaxDamage())));
             }
             case MAX_DURATION -> {
-                int newMaxDurability = (int) evaluateOrDefaultValue(amountExpression, context.getVariables(), stack.getMaxDamage());
+                int newMaxDurability = (int) evaluateOrDefaultValue(compiledAmount, context.getVariables(), stack.getMaxDamage());
                 stack.getOrCreateTag().putInt("Affix_Durability", Math.max(1, newMaxDurability));
             }
         }
@@ -7,6 +7,7 @@ import net.minecraftforge.event.entity.living.MobEffectEvent;
 import net.minecraftforge.eventbus.api.Event;
 import net.yixi_xun.affix_core.AffixCoreMod;
 import net.yixi_xun.affix_core.affix.AffixContext;
+import net.yixi_xun.affix_core.api.expression.CompiledExpression;
 
 /**
  * 修改药水效果操作，在药水效果应用事件中修改效果参数
@@ -14,11 +15,15 @@ import net.yixi_xun.affix_core.affix.AffixContext;
 public class ModifyEffectOperation extends BaseOperation {
 
     private final String durationExpression;
+    private final CompiledExpression compiledDuration;
     private final String amplifierExpression;
+    private final CompiledExpression compiledAmplifier;
 
     public ModifyEffectOperation(String durationExpression, String amplifierExpression) {
         this.durationExpression = durationExpression != null ? durationExpression : "100";
+        this.compiledDuration = compileExpression(this.durationExpression);
         this.amplifierExpression = amplifierExpression != null ? amplifierExpression : "0";
+        this.compiledAmplifier = compileExpression(this.amplifierExpression);
     }
 
     @Override
@@ -40,8 +45,8 @@ public class ModifyEffectOperation extends BaseOperation {
 
         try {
             // 计算新效果参数
-            int newDuration = Math.max(0, (int) evaluateOrDefaultValue(durationExpression, context.getVariables(), oldEffect.getDuration()));
-            int newAmplifier = Math.max(0, (int) evaluateOrDefaultValue(amplifierExpression, context.getVariables(), oldEffect.getAmplifier()));
+            int newDuration = Math.max(0, (int) evaluateOrDefaultValue(compiledDuration, context.getVariables(), oldEffect.getDuration()));
+            int newAmplifier = Math.max(0, (int) evaluateOrDefaultValue(compiledAmplifier, context.getVariables(), oldEffect.getAmplifier()));
 
             if (newDuration == 0) {
                 event.setResult(Event.Result.DENY);
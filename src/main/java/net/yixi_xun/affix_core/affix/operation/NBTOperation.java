@@ -5,6 +5,8 @@ import net.minecraft.nbt.Tag;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.item.ItemStack;
 import net.yixi_xun.affix_core.affix.AffixContext;
+import net.yixi_xun.affix_core.affix.AffixManager;
+import net.yixi_xun.affix_core.api.expression.CompiledExpression;
 
 import static net.yixi_xun.affix_core.AffixCoreMod.LOGGER;
 
@@ -14,6 +16,7 @@ import static net.yixi_xun.affix_core.AffixCoreMod.LOGGER;
 public class NBTOperation extends BaseOperation {
     private final String nbtPath;
     private final String valueExpression;
+    private final CompiledExpression compiledValue;
     private final ValueType valueType;
     private final OperationMode operationMode;
     /** 
@@ -64,6 +67,7 @@ public class NBTOperation extends BaseOperation {
                        String operationMode, String targetExpression) {
         this.nbtPath = nbtPath != null ? nbtPath.trim() : "";
         this.valueExpression = valueExpression != null ? valueExpression : "0";
+        this.compiledValue = compileExpression(this.valueExpression);
         this.valueType = ValueType.fromString(valueType);
         this.operationMode = OperationMode.fromString(operationMode);
         this.targetExpression = targetExpression != null ? targetExpression.trim() : "self";
@@ -87,6 +91,11 @@ public class NBTOperation extends BaseOperation {
                 case ADD, MODIFY -> modifyNBTValue(context, targetNBT);
                 case DELETE -> deleteNBTValue(targetNBT);
             }
+
+            // 直接修改了物品的词缀列表时更新其版本戳
+            if (nbtPath.startsWith(AffixManager.AFFIX_TAG_KEY) && !"target".equalsIgnoreCase(targetExpression.trim())) {
+                AffixManager.markAffixesChanged(getTargetItem(context, targetExpression));
+            }
         } catch (Exception e) {
             LOGGER.error("执行 NBT操作时发生错误：path={}", nbtPath, e);
         }
@@ -113,13 +122,13 @@ public class NBTOperation extends BaseOperation {
     private Object computeValue(AffixContext context) {
         return switch (valueType) {
             case NUMBER -> {
-                double result = evaluateOrDefaultValue(valueExpression, context.getVariables(), 0.0);
+                double result = evaluateOrDefaultValue(compiledValue, context.getVariables(), 0.0);
                 // 判断是整数还是浮点数
                 yield (result == (long) result) ? (long) result : result;
             }
-            case STRING -> String.valueOf(evaluateOrDefaultValue(valueExpression, context.getVariables(), 0.0));
+            case STRING -> String.valueOf(evaluateOrDefaultValue(compiledValue, context.getVariables(), 0.0));
             case BOOLEAN -> {
-                double result = evaluateOrDefaultValue(valueExpression, context.getVariables(), 0.0);
+                double result = evaluateOrDefaultValue(compiledValue, context.getVariables(), 0.0);
                 yield Math.abs(result) > 1e-10; // 非零视为真
             }
         };
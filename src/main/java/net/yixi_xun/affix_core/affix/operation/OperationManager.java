@@ -53,6 +53,10 @@ public class OperationManager {
 
         try {
             return factory.create(nbt);
+        } catch (IllegalArgumentException e) {
+            // 表达式语法错误等配置问题，只记录一次诊断信息
+            AffixCoreMod.LOGGER.error("Invalid operation of type {}: {}", type, e.getMessage());
+            return null;
         } catch (Exception e) {
             AffixCoreMod.LOGGER.error("Failed to create operation of type: {}", type, e);
             return null;
@@ -8,6 +8,7 @@ import net.minecraft.world.entity.LivingEntity;
 import net.minecraftforge.registries.ForgeRegistries;
 import net.yixi_xun.affix_core.AffixCoreMod;
 import net.yixi_xun.affix_core.affix.AffixContext;
+import net.yixi_xun.affix_core.api.expression.CompiledExpression;
 
 import java.util.Map;
 import java.util.UUID;
@@ -20,10 +21,14 @@ public class PotionOperation extends BaseOperation {
 
     private final ResourceLocation effectId;
     private final String durationExpression;
+    private final CompiledExpression compiledDuration;
     private final String amplifierExpression;
+    private final CompiledExpression compiledAmplifier;
     private final boolean overlayEffect;
     private final String maxAmplifierExpression;
+    private final CompiledExpression compiledMaxAmplifier;
     private final String maxDurationExpression;
+    private final CompiledExpression compiledMaxDuration;
     private final boolean ambient;
     private final boolean showParticles;
     private final boolean showIcon;
@@ -36,9 +41,13 @@ public class PotionOperation extends BaseOperation {
                           boolean showIcon, boolean overrideExisting, String target, boolean shouldRemoved) {
         this.effectId = effectId != null ? effectId : ResourceLocation.tryParse("minecraft.speed");
         this.durationExpression = durationExpression != null ? durationExpression : "100";
+        this.compiledDuration = compileExpression(this.durationExpression);
         this.amplifierExpression = amplifierExpression != null ? amplifierExpression : "0";
+        this.compiledAmplifier = compileExpression(this.amplifierExpression);
         this.maxAmplifierExpression = maxAmplifierExpression != null ? maxAmplifierExpression : "4";
+        this.compiledMaxAmplifier = compileExpression(this.maxAmplifierExpression);
         this.maxDurationExpression = maxDurationExpression != null ? maxDurationExpression : "100";
+        this.compiledMaxDuration = compileExpression(this.maxDurationExpression);
         this.ambient = ambient;
         this.showParticles = showParticles;
         this.showIcon = showIcon;
@@ -82,13 +91,13 @@ public class PotionOperation extends BaseOperation {
      * 计算药水效果等级（考虑叠加逻辑）
      */
     private int calculateAmplifier(AffixContext context, MobEffect effect, LivingEntity target) {
-        int baseAmplifier = Math.max(0, (int) evaluateOrDefaultValue(amplifierExpression, context.getVariables(), 0));
+        int baseAmplifier = Math.max(0, (int) evaluateOrDefaultValue(compiledAmplifier, context.getVariables(), 0));
 
         if (maxAmplifierExpression.equals("-1")) {
             return baseAmplifier;
         }
 
-        int maxAmplifier = Math.max(0, (int) evaluateOrDefaultValue(maxAmplifierExpression, context.getVariables(), 4));
+        int maxAmplifier = Math.max(0, (int) evaluateOrDefaultValue(compiledMaxAmplifier, context.getVariables(), 4));
 
         if (overlayEffect) {
             MobEffectInstance existingEffect = target.getEffect(effect);
@@ -104,13 +113,13 @@ public class PotionOperation extends BaseOperation {
     }
 
     private int calculateDuration(AffixContext context, MobEffect effect, LivingEntity target) {
-        int baseDuration = Math.max(0, (int) evaluateOrDefaultValue(durationExpression, context.getVariables(), 100));
+        int baseDuration = Math.max(0, (int) evaluateOrDefaultValue(compiledDuration, context.getVariables(), 100));
 
         if (maxDurationExpression.equals("-1")) {
             return baseDuration;
         }
 
-        int maxDuration = Math.max(0, (int) evaluateOrDefaultValue(maxDurationExpression, context.getVariables(), 100000));
+        int maxDuration = Math.max(0, (int) evaluateOrDefaultValue(compiledMaxDuration, context.getVariables(), 100000));
 
         if (overlayEffect) {
             MobEffectInstance existingEffect = target.getEffect(effect);
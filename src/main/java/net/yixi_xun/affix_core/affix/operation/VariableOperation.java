@@ -4,6 +4,7 @@ import net.minecraft.nbt.CompoundTag;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.item.ItemStack;
 import net.yixi_xun.affix_core.affix.AffixContext;
+import net.yixi_xun.affix_core.api.expression.CompiledExpression;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -16,13 +17,19 @@ public class VariableOperation extends BaseOperation {
     private final String target;
     private final String key;
     private final String value;
+    // 值为表达式时的编译结果，字符串值时为 null
+    private final CompiledExpression compiledValue;
 
     private static final Map<LivingEntity, Map<String, Object>> entityVariables = new WeakHashMap<>();
 
     public VariableOperation(String key, String value, String target) {
+        if (value == null) {
+            throw new IllegalArgumentException("Variable operation missing Value for key: " + key);
+        }
         this.target = target != null ? target : "self";
         this.key = key;
         this.value = value;
+        this.compiledValue = value.startsWith("\"") ? null : compileExpression(value);
     }
 
     public static Map<String, Object> getEntityVariables(LivingEntity entity) {
@@ -64,7 +71,7 @@ public class VariableOperation extends BaseOperation {
             if (!variables.containsKey(key)) {
                 variables.put(key, 0);
             }
-            double result = evaluateOrDefaultValue(value, variables, 0);
+            double result = evaluateOrDefaultValue(compiledValue, variables, 0);
             // 判断是整数还是浮点数
             if (result == (long) result) {
                 affixData.putLong(key, (long) result);
@@ -93,7 +100,7 @@ public class VariableOperation extends BaseOperation {
             if (!variables.containsKey(key)) {
                 variables.put(key, 0);
             }
-            current.put(key, evaluateOrDefaultValue(value, variables, 0));
+            current.put(key, evaluateOrDefaultValue(compiledValue, variables, 0));
         }
     }
 
@@ -7,11 +7,13 @@ import net.minecraftforge.eventbus.api.EventPriority;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
 import net.yixi_xun.affix_core.mixin.LivingEntityMixin;
+import net.yixi_xun.affix_core.profiling.AffixJfrEvents;
 
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Mod.EventBusSubscriber
@@ -55,8 +57,13 @@ public class HurtManager {
     public static void onTick(TickEvent.ServerTickEvent event) {
         if (event.phase != TickEvent.Phase.END) return;
 
+        AffixJfrEvents.ExtraHurtTick jfrEvent = new AffixJfrEvents.ExtraHurtTick();
+        jfrEvent.begin();
+        int entries = 0;
+
         onDealExtraDamage = true;
-        for (LivingEntity target : new HashSet<>(extraHurtQueue.keySet())) {
+        Set<LivingEntity> targets = new HashSet<>(extraHurtQueue.keySet());
+        for (LivingEntity target : targets) {
             if (!target.isAlive()) {
                 extraHurtQueue.remove(target);
             } else {
@@ -64,6 +71,7 @@ public class HurtManager {
 
                 if (extraHurtDataList == null) continue;
 
+                entries += extraHurtDataList.size();
                 for (ExtraHurtData extraHurtData : extraHurtDataList) {
                     if (extraHurtData != null) {
                         // 处理额外伤害
@@ -75,5 +83,11 @@ public class HurtManager {
             }
         }
         onDealExtraDamage = false;
+
+        if (jfrEvent.shouldCommit()) {
+            jfrEvent.targets = targets.size();
+            jfrEvent.entries = entries;
+            jfrEvent.commit();
+        }
     }
 }
\ No newline at end of file
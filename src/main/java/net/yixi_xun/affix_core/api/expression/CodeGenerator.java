@@ -0,0 +1,72 @@
+package net.yixi_xun.affix_core.api.expression;
+
+import java.util.List;
+
+/**
+ * 将语法树翻译为指令程序。
+ * &&、|| 与三元条件运算通过跳转指令实现，未被选中的分支不会被求值。
+ */
+final class CodeGenerator {
+
+    private CodeGenerator() {
+    }
+
+    static void generate(Node node, ProgramBuilder builder) {
+        emit(node, builder);
+        builder.checkComplete();
+    }
+
+    private static void emit(Node node, ProgramBuilder builder) {
+        if (node instanceof Node.NumberLiteral number) {
+            builder.emitConstant(number.value());
+        } else if (node instanceof Node.StringLiteral string) {
+            builder.emitString(string.value());
+        } else if (node instanceof Node.Variable variable) {
+            builder.emitLoad(variable.name());
+        } else if (node instanceof Node.Unary unary) {
+            emit(unary.operand(), builder);
+            builder.emit(unary.op());
+        } else if (node instanceof Node.Binary binary) {
+            emit(binary.left(), builder);
+            emit(binary.right(), builder);
+            builder.emit(binary.op());
+        } else if (node instanceof Node.And and) {
+            // 左侧为假时直接以 0 作为结果跳过右侧
+            emit(and.left(), builder);
+            int jump = builder.emitJump(OpCode.AND_JUMP);
+            emit(and.right(), builder);
+            builder.emit(OpCode.BOOL);
+            builder.patch(jump);
+        } else if (node instanceof Node.Or or) {
+            // 左侧为真时直接以 1 作为结果跳过右侧
+            emit(or.left(), builder);
+            int jump = builder.emitJump(OpCode.OR_JUMP);
+            emit(or.right(), builder);
+            builder.emit(OpCode.BOOL);
+            builder.patch(jump);
+        } else if (node instanceof Node.Conditional conditional) {
+            emit(conditional.condition(), builder);
+            int toElse = builder.emitJump(OpCode.JUMP_IF_FALSE);
+            int depth = builder.depth();
+            emit(conditional.whenTrue(), builder);
+            int toEnd = builder.emitJump(OpCode.JUMP);
+            builder.patch(toElse);
+            builder.resetDepth(depth);
+            emit(conditional.whenFalse(), builder);
+            builder.patch(toEnd);
+        } else if (node instanceof Node.Call call) {
+            List<Node> args = call.args();
+            emit(args.get(0), builder);
+            if (args.size() == 1) {
+                builder.emit(call.op());
+            }
+            // min/max 支持多个参数，依次两两合并
+            for (int i = 1; i < args.size(); i++) {
+                emit(args.get(i), builder);
+                builder.emit(call.op());
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown expression node: " + node);
+        }
+    }
+}
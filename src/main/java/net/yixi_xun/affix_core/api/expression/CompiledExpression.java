@@ -0,0 +1,308 @@
+package net.yixi_xun.affix_core.api.expression;
+
+import java.util.*;
+
+/**
+ * 预编译的表达式。
+ * 表达式字符串只在编译时进行一次词法分析和语法分析，得到不可变的指令程序，
+ * 数值常量也在编译时解析完毕。求值时使用线程私有的 double 栈执行指令，
+ * 字符串等非数值通过并行的引用栈传递，纯数值表达式求值不产生任何对象分配。
+ * <p>
+ * 实例是不可变的，可以在多个线程间安全共享。
+ */
+public final class CompiledExpression {
+
+    private final String source;
+    // 指令序列，带操作数的指令后紧跟其操作数
+    private final int[] code;
+    // 编译期解析好的数值常量
+    private final double[] constants;
+    // 字符串常量与预编译的变量路径
+    private final Object[] refs;
+    // 执行所需的最大栈深度
+    private final int maxStack;
+
+    private CompiledExpression(String source, ProgramBuilder builder) {
+        this.source = source;
+        this.code = builder.code();
+        this.constants = builder.constants();
+        this.refs = builder.refs();
+        this.maxStack = builder.maxDepth();
+    }
+
+    /**
+     * 编译表达式
+     *
+     * @param expression 表达式字符串
+     * @return 编译后的表达式
+     * @throws IllegalArgumentException 表达式存在语法错误时抛出
+     */
+    public static CompiledExpression compile(String expression) {
+        if (expression == null || expression.trim().isEmpty()) {
+            throw new IllegalArgumentException("Expression is null or empty.");
+        }
+
+        // 1. 词法分析
+        List<Token> tokens = ExpressionLexer.tokenize(expression);
+
+        // 2. 语法分析与常量折叠
+        Node root = ConstantFolder.fold(ExpressionParser.parse(tokens));
+
+        // 3. 生成指令并校验栈深度
+        ProgramBuilder builder = new ProgramBuilder();
+        CodeGenerator.generate(root, builder);
+
+        return new CompiledExpression(expression, builder);
+    }
+
+    /**
+     * 计算只由常量组成的语法树，供常量折叠使用
+     */
+    static double evaluateConstant(Node node) {
+        ProgramBuilder builder = new ProgramBuilder();
+        CodeGenerator.generate(node, builder);
+        return new CompiledExpression("", builder).evaluate(Map.of());
+    }
+
+    /**
+     * 表达式的结果是否与变量无关
+     */
+    public boolean isConstant() {
+        return code.length == 2 && (code[0] == OpCode.CONST || code[0] == OpCode.STRING);
+    }
+
+    /**
+     * 获取常量表达式的值，字符串常量的值为 0
+     *
+     * @throws IllegalStateException 表达式不是常量时抛出
+     */
+    public double getConstantValue() {
+        if (!isConstant()) {
+            throw new IllegalStateException("Expression is not constant: " + source);
+        }
+        return code[0] == OpCode.CONST ? constants[code[1]] : 0.0;
+    }
+
+    /**
+     * 获取原始表达式字符串
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * 使用给定的变量计算表达式
+     *
+     * @param variables 本次计算所用的变量映射，值可以是任意Number类型或String。
+     *                  传入 {@link VariableFrame} 时按槽位直接读取变量
+     * @return 计算结果的 double 值
+     * @throws IllegalArgumentException 计算失败时抛出
+     */
+    public double evaluate(Map<String, ?> variables) {
+        EvalStack stack = EvalStack.current();
+        int base = stack.top;
+        stack.ensureCapacity(base + maxStack);
+        stack.top = base + maxStack;
+        try {
+            return execute(stack.nums, stack.refs, base, variables);
+        } finally {
+            // 清理引用，避免栈持有实体等对象
+            Arrays.fill(stack.refs, base, base + maxStack, null);
+            stack.top = base;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    // --- 求值 ---
+    private double execute(double[] nums, Object[] values, int base, Map<String, ?> variables) {
+        final int[] code = this.code;
+        final VariableFrame frame = variables instanceof VariableFrame f ? f : null;
+        int sp = base - 1;
+        int pc = 0;
+
+        while (pc < code.length) {
+            switch (code[pc++]) {
+                case OpCode.CONST -> {
+                    nums[++sp] = constants[code[pc++]];
+                    values[sp] = null;
+                }
+                case OpCode.STRING -> {
+                    nums[++sp] = 0.0;
+                    values[sp] = refs[code[pc++]];
+                }
+                case OpCode.LOAD -> {
+                    int slot = code[pc++];
+                    Object value = frame != null ? frame.getBySlot(slot) : VariableFrame.ABSENT;
+                    if (value == VariableFrame.ABSENT) {
+                        value = loadVariable(VariableSchema.nameOf(slot), variables);
+                    }
+                    sp = push(nums, values, sp, value);
+                }
+                case OpCode.LOAD_PATH -> {
+                    VariablePath path = (VariablePath) refs[code[pc++]];
+                    Object value = path.resolve(variables);
+                    if (value == VariableFrame.ABSENT) {
+                        throw new IllegalArgumentException("Unknown variable: " + path.getPath());
+                    }
+                    sp = push(nums, values, sp, value);
+                }
+                case OpCode.ADD -> {
+                    sp--;
+                    nums[sp] += nums[sp + 1];
+                    values[sp] = null;
+                }
+                case OpCode.SUB -> {
+                    sp--;
+                    nums[sp] -= nums[sp + 1];
+                    values[sp] = null;
+                }
+                case OpCode.MUL -> {
+                    sp--;
+                    nums[sp] *= nums[sp + 1];
+                    values[sp] = null;
+                }
+                case OpCode.DIV -> {
+                    sp--;
+                    if (nums[sp + 1] == 0) {
+                        throw new IllegalArgumentException("Division by zero");
+                    }
+                    nums[sp] /= nums[sp + 1];
+                    values[sp] = null;
+                }
+                case OpCode.POW -> {
+                    sp--;
+                    nums[sp] = Math.pow(nums[sp], nums[sp + 1]);
+                    values[sp] = null;
+                }
+                case OpCode.NEG -> {
+                    nums[sp] = -nums[sp];
+                    values[sp] = null;
+                }
+                case OpCode.EQ, OpCode.NEQ, OpCode.LT, OpCode.LTE, OpCode.GT, OpCode.GTE -> {
+                    sp--;
+                    nums[sp] = compare(code[pc - 1], nums, values, sp) ? 1.0 : 0.0;
+                    values[sp] = null;
+                }
+                case OpCode.NOT -> {
+                    nums[sp] = isTrue(nums, values, sp) ? 0.0 : 1.0;
+                    values[sp] = null;
+                }
+                case OpCode.BOOL -> {
+                    nums[sp] = isTrue(nums, values, sp) ? 1.0 : 0.0;
+                    values[sp] = null;
+                }
+                case OpCode.JUMP -> pc = code[pc];
+                case OpCode.JUMP_IF_FALSE -> {
+                    boolean condition = isTrue(nums, values, sp);
+                    values[sp--] = null;
+                    pc = condition ? pc + 1 : code[pc];
+                }
+                case OpCode.AND_JUMP -> {
+                    if (isTrue(nums, values, sp)) {
+                        values[sp--] = null;
+                        pc++;
+                    } else {
+                        nums[sp] = 0.0;
+                        values[sp] = null;
+                        pc = code[pc];
+                    }
+                }
+                case OpCode.OR_JUMP -> {
+                    if (isTrue(nums, values, sp)) {
+                        nums[sp] = 1.0;
+                        values[sp] = null;
+                        pc = code[pc];
+                    } else {
+                        values[sp--] = null;
+                        pc++;
+                    }
+                }
+                case OpCode.MIN -> {
+                    sp--;
+                    nums[sp] = Math.min(nums[sp], nums[sp + 1]);
+                    values[sp] = null;
+                }
+                case OpCode.MAX -> {
+                    sp--;
+                    nums[sp] = Math.max(nums[sp], nums[sp + 1]);
+                    values[sp] = null;
+                }
+                case OpCode.ABS -> {
+                    nums[sp] = Math.abs(nums[sp]);
+                    values[sp] = null;
+                }
+                case OpCode.SQRT -> {
+                    nums[sp] = Math.sqrt(nums[sp]);
+                    values[sp] = null;
+                }
+                case OpCode.LOG -> {
+                    nums[sp] = Math.log(nums[sp]);
+                    values[sp] = null;
+                }
+                default -> throw new IllegalStateException("Unknown opcode: " + code[pc - 1]);
+            }
+        }
+
+        // 结果不是数值时返回 0
+        return values[base] == null ? nums[base] : 0.0;
+    }
+
+    // 读取变量值，值为 null 时按 0 处理
+    private static Object loadVariable(String name, Map<String, ?> variables) {
+        if (!variables.containsKey(name)) {
+            throw new IllegalArgumentException("Unknown variable: " + name);
+        }
+        return variables.get(name);
+    }
+
+    // 将变量值压栈，null 视为 0，非数值参与算术运算时也视为 0
+    private static int push(double[] nums, Object[] values, int sp, Object value) {
+        sp++;
+        if (value instanceof Number number) {
+            nums[sp] = number.doubleValue();
+            values[sp] = null;
+        } else {
+            nums[sp] = 0.0;
+            values[sp] = value;
+        }
+        return sp;
+    }
+
+    // 比较 index 与 index + 1 处的两个值
+    private static boolean compare(int op, double[] nums, Object[] values, int index) {
+        // 如果两边都是字符串，进行字符串比较
+        if (values[index] instanceof String aStr && values[index + 1] instanceof String bStr) {
+            return switch (op) {
+                case OpCode.EQ -> aStr.equals(bStr);
+                case OpCode.NEQ -> !aStr.equals(bStr);
+                // 字符串不支持大小比较，返回 false
+                default -> false;
+            };
+        }
+
+        // 否则进行数字比较 (如果其中一方不是数字，视为 0.0)
+        double a = nums[index];
+        double b = nums[index + 1];
+        return switch (op) {
+            case OpCode.EQ -> a == b;
+            case OpCode.NEQ -> a != b;
+            case OpCode.LT -> a < b;
+            case OpCode.LTE -> a <= b;
+            case OpCode.GT -> a > b;
+            default -> a >= b;
+        };
+    }
+
+    // 获取栈中某一位置的布尔值
+    private static boolean isTrue(double[] nums, Object[] values, int index) {
+        Object value = values[index];
+        if (value == null) {
+            return Math.abs(nums[index]) > 1e-10; // 非零为真
+        }
+        return value instanceof String str && !str.isEmpty(); // 非空字符串为真
+    }
+}
@@ -0,0 +1,84 @@
+package net.yixi_xun.affix_core.api.expression;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 常量折叠。
+ * 在编译期计算只由常量组成的子表达式，并消除条件恒定的短路运算和三元运算分支。
+ * 折叠时复用求值器本身计算结果，保证与运行时语义完全一致。
+ */
+final class ConstantFolder {
+
+    private ConstantFolder() {
+    }
+
+    static Node fold(Node node) {
+        if (node instanceof Node.Unary unary) {
+            Node operand = fold(unary.operand());
+            return evaluateIfConstant(new Node.Unary(unary.op(), operand), operand);
+        } else if (node instanceof Node.Binary binary) {
+            Node left = fold(binary.left());
+            Node right = fold(binary.right());
+            return evaluateIfConstant(new Node.Binary(binary.op(), left, right), left, right);
+        } else if (node instanceof Node.Call call) {
+            List<Node> args = new ArrayList<>(call.args().size());
+            for (Node arg : call.args()) {
+                args.add(fold(arg));
+            }
+            return evaluateIfConstant(new Node.Call(call.op(), call.name(), List.copyOf(args)), args.toArray(new Node[0]));
+        } else if (node instanceof Node.And and) {
+            Node left = fold(and.left());
+            Node right = fold(and.right());
+            if (isLiteral(left)) {
+                // 左侧恒假时结果恒为 0，恒真时结果取决于右侧
+                return isTrue(left) ? fold(new Node.Unary(OpCode.BOOL, right)) : new Node.NumberLiteral(0.0);
+            }
+            return new Node.And(left, right);
+        } else if (node instanceof Node.Or or) {
+            Node left = fold(or.left());
+            Node right = fold(or.right());
+            if (isLiteral(left)) {
+                // 左侧恒真时结果恒为 1，恒假时结果取决于右侧
+                return isTrue(left) ? new Node.NumberLiteral(1.0) : fold(new Node.Unary(OpCode.BOOL, right));
+            }
+            return new Node.Or(left, right);
+        } else if (node instanceof Node.Conditional conditional) {
+            Node condition = fold(conditional.condition());
+            Node whenTrue = fold(conditional.whenTrue());
+            Node whenFalse = fold(conditional.whenFalse());
+            if (isLiteral(condition)) {
+                return isTrue(condition) ? whenTrue : whenFalse;
+            }
+            return new Node.Conditional(condition, whenTrue, whenFalse);
+        }
+        return node;
+    }
+
+    // 所有操作数都是常量时直接计算结果
+    private static Node evaluateIfConstant(Node node, Node... operands) {
+        for (Node operand : operands) {
+            if (!isLiteral(operand)) {
+                return node;
+            }
+        }
+        try {
+            return new Node.NumberLiteral(CompiledExpression.evaluateConstant(node));
+        } catch (IllegalArgumentException e) {
+            // 如除以零等错误保留到运行时处理，行为与未折叠时一致
+            return node;
+        }
+    }
+
+    private static boolean isLiteral(Node node) {
+        return node instanceof Node.NumberLiteral || node instanceof Node.StringLiteral;
+    }
+
+    // 与求值器相同的真值规则：非零数值与非空字符串为真
+    private static boolean isTrue(Node literal) {
+        if (literal instanceof Node.NumberLiteral number) {
+            return Math.abs(number.value()) > 1e-10;
+        }
+        return literal instanceof Node.StringLiteral string && !string.value().isEmpty();
+    }
+}
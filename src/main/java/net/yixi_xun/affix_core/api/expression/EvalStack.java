@@ -0,0 +1,30 @@
+package net.yixi_xun.affix_core.api.expression;
+
+import java.util.Arrays;
+
+/**
+ * 线程私有的求值栈。
+ * 数值保存在 {@code nums} 中；字符串等非数值保存在 {@code refs} 的同一位置，
+ * 此时对应的 {@code nums} 为 0（非数值参与算术运算时视为 0）。
+ * {@code refs} 为 null 表示该位置是数值。
+ */
+final class EvalStack {
+    private static final ThreadLocal<EvalStack> LOCAL = ThreadLocal.withInitial(EvalStack::new);
+
+    double[] nums = new double[32];
+    Object[] refs = new Object[32];
+    // 当前已被占用的栈顶位置，用于支持嵌套求值
+    int top;
+
+    static EvalStack current() {
+        return LOCAL.get();
+    }
+
+    void ensureCapacity(int capacity) {
+        if (capacity > nums.length) {
+            int newLength = Math.max(capacity, nums.length * 2);
+            nums = Arrays.copyOf(nums, newLength);
+            refs = Arrays.copyOf(refs, newLength);
+        }
+    }
+}
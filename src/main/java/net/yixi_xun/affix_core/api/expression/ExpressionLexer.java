@@ -0,0 +1,163 @@
+package net.yixi_xun.affix_core.api.expression;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 手写的单遍词法分析器。
+ * 逐字符扫描表达式，只为数字、标识符和字符串字面量截取子串，
+ * 出错时报告出错字符在表达式中的位置（从 0 开始）。
+ * <p>
+ * 词法规则：
+ * <ul>
+ *   <li>数字：{@code 123} 或 {@code 1.5}</li>
+ *   <li>字符串：{@code "..."} 或 {@code '...'}</li>
+ *   <li>标识符：字母或下划线开头，后接字母、数字、下划线或点，如 {@code self.health}</li>
+ *   <li>关键字：完整的标识符 {@code true}/{@code false} 为布尔值，内置函数名为函数</li>
+ *   <li>运算符：&& || == != <= >= < > ! + - * / ^ ( ) ? : ,</li>
+ * </ul>
+ */
+final class ExpressionLexer {
+    // 内置函数名
+    private static final Set<String> FUNCTIONS = Set.of("min", "max", "abs", "sqrt", "log");
+
+    private final String input;
+    private final int length;
+    private final List<Token> tokens = new ArrayList<>();
+    private int pos;
+
+    private ExpressionLexer(String input) {
+        this.input = input;
+        this.length = input.length();
+    }
+
+    static List<Token> tokenize(String expression) {
+        ExpressionLexer lexer = new ExpressionLexer(expression);
+        lexer.scan();
+        return lexer.tokens;
+    }
+
+    private void scan() {
+        while (pos < length) {
+            char c = input.charAt(pos);
+            if (Character.isWhitespace(c)) {
+                pos++;
+            } else if (isDigit(c)) {
+                scanNumber();
+            } else if (isIdentifierStart(c)) {
+                scanIdentifier();
+            } else if (c == '"' || c == '\'') {
+                scanString(c);
+            } else {
+                scanOperator(c);
+            }
+        }
+    }
+
+    private void scanNumber() {
+        int start = pos;
+        while (pos < length && isDigit(input.charAt(pos))) {
+            pos++;
+        }
+        // 小数点后必须有数字，否则小数点不属于该数字
+        if (pos + 1 < length && input.charAt(pos) == '.' && isDigit(input.charAt(pos + 1))) {
+            pos++;
+            while (pos < length && isDigit(input.charAt(pos))) {
+                pos++;
+            }
+        }
+        tokens.add(new Token(Token.Type.NUMBER, input.substring(start, pos), start));
+    }
+
+    private void scanIdentifier() {
+        int start = pos;
+        pos++;
+        while (pos < length && isIdentifierPart(input.charAt(pos))) {
+            pos++;
+        }
+        String identifier = input.substring(start, pos);
+        Token.Type type;
+        if (identifier.equals("true") || identifier.equals("false")) {
+            type = Token.Type.BOOLEAN;
+        } else if (FUNCTIONS.contains(identifier)) {
+            type = Token.Type.FUNCTION;
+        } else {
+            type = Token.Type.VARIABLE;
+        }
+        tokens.add(new Token(type, identifier, start));
+    }
+
+    private void scanString(char quote) {
+        int start = pos;
+        int end = input.indexOf(quote, start + 1);
+        if (end < 0) {
+            throw new IllegalArgumentException("Unterminated string literal at position " + start);
+        }
+        tokens.add(new Token(Token.Type.STRING, input.substring(start + 1, end), start));
+        pos = end + 1;
+    }
+
+    private void scanOperator(char c) {
+        int start = pos;
+        char next = pos + 1 < length ? input.charAt(pos + 1) : '\0';
+        switch (c) {
+            case '+' -> add(Token.Type.OPERATOR_ADD, "+", 1);
+            case '-' -> add(Token.Type.OPERATOR_SUB, "-", 1);
+            case '*' -> add(Token.Type.OPERATOR_MUL, "*", 1);
+            case '/' -> add(Token.Type.OPERATOR_DIV, "/", 1);
+            case '^' -> add(Token.Type.OPERATOR_POW, "^", 1);
+            case '(' -> add(Token.Type.LEFT_PAREN, "(", 1);
+            case ')' -> add(Token.Type.RIGHT_PAREN, ")", 1);
+            case ',' -> add(Token.Type.COMMA, ",", 1);
+            case '?' -> add(Token.Type.QUESTION, "?", 1);
+            case ':' -> add(Token.Type.COLON, ":", 1);
+            case '<' -> {
+                if (next == '=') add(Token.Type.OPERATOR_LTE, "<=", 2);
+                else add(Token.Type.OPERATOR_LT, "<", 1);
+            }
+            case '>' -> {
+                if (next == '=') add(Token.Type.OPERATOR_GTE, ">=", 2);
+                else add(Token.Type.OPERATOR_GT, ">", 1);
+            }
+            case '!' -> {
+                if (next == '=') add(Token.Type.OPERATOR_NEQ, "!=", 2);
+                else add(Token.Type.OPERATOR_NOT, "!", 1);
+            }
+            case '=' -> {
+                if (next != '=') throw invalidCharacter(c, start);
+                add(Token.Type.OPERATOR_EQ, "==", 2);
+            }
+            case '&' -> {
+                if (next != '&') throw invalidCharacter(c, start);
+                add(Token.Type.OPERATOR_AND, "&&", 2);
+            }
+            case '|' -> {
+                if (next != '|') throw invalidCharacter(c, start);
+                add(Token.Type.OPERATOR_OR, "||", 2);
+            }
+            default -> throw invalidCharacter(c, start);
+        }
+    }
+
+    private void add(Token.Type type, String value, int width) {
+        tokens.add(new Token(type, value, pos));
+        pos += width;
+    }
+
+    private static IllegalArgumentException invalidCharacter(char c, int position) {
+        return new IllegalArgumentException("Invalid character '" + c + "' at position " + position);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return isIdentifierStart(c) || isDigit(c) || c == '.';
+    }
+}
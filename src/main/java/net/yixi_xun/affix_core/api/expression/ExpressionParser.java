@@ -0,0 +1,191 @@
+package net.yixi_xun.affix_core.api.expression;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 递归下降语法分析器，将词法单元序列转换为语法树。
+ * <p>
+ * 优先级从低到高依次为：
+ * 三元条件 ?: (右结合)、||、&&、比较运算、+ -、* /、^ (左结合)、一元 - 和 !、基本项。
+ * 函数参数可以用逗号或空白分隔，如 {@code min(a, b)} 或 {@code min(a b)}；
+ * 单参数函数也可以省略括号，如 {@code sqrt x}，此时参数延伸到其后的整个算术表达式，
+ * 即 {@code sqrt x + 1} 等同于 {@code sqrt(x + 1)}，与旧版调度场实现一致。
+ */
+final class ExpressionParser {
+    private final List<Token> tokens;
+    private int pos;
+
+    private ExpressionParser(List<Token> tokens) {
+        this.tokens = tokens;
+    }
+
+    static Node parse(List<Token> tokens) {
+        ExpressionParser parser = new ExpressionParser(tokens);
+        Node node = parser.parseConditional();
+        if (parser.pos < tokens.size()) {
+            Token token = tokens.get(parser.pos);
+            if (token.type() == Token.Type.RIGHT_PAREN) {
+                throw new IllegalArgumentException("Mismatched parentheses at position " + token.position());
+            }
+            throw unexpected(token);
+        }
+        return node;
+    }
+
+    private Node parseConditional() {
+        Node condition = parseOr();
+        if (match(Token.Type.QUESTION)) {
+            Node whenTrue = parseConditional();
+            expect(Token.Type.COLON, "Expected ':' in conditional expression");
+            Node whenFalse = parseConditional();
+            return new Node.Conditional(condition, whenTrue, whenFalse);
+        }
+        return condition;
+    }
+
+    private Node parseOr() {
+        Node left = parseAnd();
+        while (match(Token.Type.OPERATOR_OR)) {
+            left = new Node.Or(left, parseAnd());
+        }
+        return left;
+    }
+
+    private Node parseAnd() {
+        Node left = parseComparison();
+        while (match(Token.Type.OPERATOR_AND)) {
+            left = new Node.And(left, parseComparison());
+        }
+        return left;
+    }
+
+    private Node parseComparison() {
+        Node left = parseAdditive();
+        while (true) {
+            int op;
+            if (match(Token.Type.OPERATOR_EQ)) op = OpCode.EQ;
+            else if (match(Token.Type.OPERATOR_NEQ)) op = OpCode.NEQ;
+            else if (match(Token.Type.OPERATOR_LT)) op = OpCode.LT;
+            else if (match(Token.Type.OPERATOR_LTE)) op = OpCode.LTE;
+            else if (match(Token.Type.OPERATOR_GT)) op = OpCode.GT;
+            else if (match(Token.Type.OPERATOR_GTE)) op = OpCode.GTE;
+            else return left;
+            left = new Node.Binary(op, left, parseAdditive());
+        }
+    }
+
+    private Node parseAdditive() {
+        Node left = parseMultiplicative();
+        while (true) {
+            if (match(Token.Type.OPERATOR_ADD)) {
+                left = new Node.Binary(OpCode.ADD, left, parseMultiplicative());
+            } else if (match(Token.Type.OPERATOR_SUB)) {
+                left = new Node.Binary(OpCode.SUB, left, parseMultiplicative());
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private Node parseMultiplicative() {
+        Node left = parsePower();
+        while (true) {
+            if (match(Token.Type.OPERATOR_MUL)) {
+                left = new Node.Binary(OpCode.MUL, left, parsePower());
+            } else if (match(Token.Type.OPERATOR_DIV)) {
+                left = new Node.Binary(OpCode.DIV, left, parsePower());
+            } else {
+                return left;
+            }
+        }
+    }
+
+    // 幂运算保持左结合，且一元运算符优先级高于幂运算，与旧版调度场实现一致
+    private Node parsePower() {
+        Node left = parseUnary();
+        while (match(Token.Type.OPERATOR_POW)) {
+            left = new Node.Binary(OpCode.POW, left, parseUnary());
+        }
+        return left;
+    }
+
+    private Node parseUnary() {
+        if (match(Token.Type.OPERATOR_SUB)) {
+            return new Node.Unary(OpCode.NEG, parseUnary());
+        }
+        if (match(Token.Type.OPERATOR_NOT)) {
+            return new Node.Unary(OpCode.NOT, parseUnary());
+        }
+        return parsePrimary();
+    }
+
+    private Node parsePrimary() {
+        if (pos >= tokens.size()) {
+            throw new IllegalArgumentException("Unexpected end of expression");
+        }
+        Token token = tokens.get(pos++);
+        return switch (token.type()) {
+            case NUMBER -> new Node.NumberLiteral(Double.parseDouble(token.value()));
+            case BOOLEAN -> new Node.NumberLiteral("true".equalsIgnoreCase(token.value()) ? 1.0 : 0.0);
+            case STRING -> new Node.StringLiteral(token.value());
+            case VARIABLE -> new Node.Variable(token.value());
+            case FUNCTION -> parseCall(token.value());
+            case LEFT_PAREN -> {
+                Node inner = parseConditional();
+                expect(Token.Type.RIGHT_PAREN, "Mismatched parentheses");
+                yield inner;
+            }
+            case RIGHT_PAREN -> throw new IllegalArgumentException("Mismatched parentheses at position " + token.position());
+            default -> throw unexpected(token);
+        };
+    }
+
+    private Node parseCall(String name) {
+        int op = OpCode.forFunction(name);
+        List<Node> args = new ArrayList<>();
+        if (match(Token.Type.LEFT_PAREN)) {
+            if (!match(Token.Type.RIGHT_PAREN)) {
+                args.add(parseConditional());
+                while (!match(Token.Type.RIGHT_PAREN)) {
+                    if (pos >= tokens.size()) {
+                        throw new IllegalArgumentException("Mismatched parentheses");
+                    }
+                    match(Token.Type.COMMA);
+                    args.add(parseConditional());
+                }
+            }
+        } else {
+            // 省略括号时只接受一个参数，参数包含其后的加减乘除和幂运算
+            args.add(parseAdditive());
+        }
+
+        boolean variadic = op == OpCode.MIN || op == OpCode.MAX;
+        if (variadic ? args.size() < 2 : args.size() != 1) {
+            throw new IllegalArgumentException("Function " + name + " expects " + (variadic ? "at least 2" : "1") +
+                    " argument(s) but got " + args.size());
+        }
+        return new Node.Call(op, name, args);
+    }
+
+    private boolean match(Token.Type type) {
+        if (pos < tokens.size() && tokens.get(pos).type() == type) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(Token.Type type, String message) {
+        if (!match(type)) {
+            if (pos < tokens.size()) {
+                throw new IllegalArgumentException(message + " at position " + tokens.get(pos).position());
+            }
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    private static IllegalArgumentException unexpected(Token token) {
+        return new IllegalArgumentException("Unexpected token '" + token.value() + "' at position " + token.position());
+    }
+}
@@ -0,0 +1,74 @@
+package net.yixi_xun.affix_core.api.expression;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.Tag;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import static net.yixi_xun.affix_core.api.ExpressionHelper.parseNbtTag;
+
+/**
+ * {@link CompoundTag} 的只读 Map 视图。
+ * <p>
+ * 不复制标签内容，只有在读取某个键时才转换对应的标签，
+ * 嵌套的复合标签同样以视图形式返回。视图直接反映底层标签的当前内容。
+ */
+public final class NbtMapView extends AbstractMap<String, Object> {
+    private final CompoundTag compound;
+
+    public NbtMapView(CompoundTag compound) {
+        this.compound = compound;
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (!(key instanceof String name)) return null;
+        Tag tag = compound.get(name);
+        return tag != null ? parseNbtTag(tag) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String name && compound.contains(name);
+    }
+
+    @Override
+    public int size() {
+        return compound.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return compound.isEmpty();
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                Iterator<String> keys = compound.getAllKeys().iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return keys.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        String key = keys.next();
+                        return new SimpleImmutableEntry<>(key, get(key));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return compound.size();
+            }
+        };
+    }
+}
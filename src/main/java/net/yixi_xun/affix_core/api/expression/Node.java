@@ -0,0 +1,45 @@
+package net.yixi_xun.affix_core.api.expression;
+
+import java.util.List;
+
+/**
+ * 表达式语法树节点
+ */
+sealed interface Node {
+
+    // 数值常量
+    record NumberLiteral(double value) implements Node {
+    }
+
+    // 字符串常量
+    record StringLiteral(String value) implements Node {
+    }
+
+    // 变量引用
+    record Variable(String name) implements Node {
+    }
+
+    // 一元运算：负号、逻辑非、布尔转换
+    record Unary(int op, Node operand) implements Node {
+    }
+
+    // 二元运算：算术运算与比较运算
+    record Binary(int op, Node left, Node right) implements Node {
+    }
+
+    // 短路与
+    record And(Node left, Node right) implements Node {
+    }
+
+    // 短路或
+    record Or(Node left, Node right) implements Node {
+    }
+
+    // 三元条件运算 cond ? a : b
+    record Conditional(Node condition, Node whenTrue, Node whenFalse) implements Node {
+    }
+
+    // 内置函数调用
+    record Call(int op, String name, List<Node> args) implements Node {
+    }
+}
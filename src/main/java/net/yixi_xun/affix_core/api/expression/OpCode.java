@@ -0,0 +1,109 @@
+package net.yixi_xun.affix_core.api.expression;
+
+/**
+ * 表达式程序的指令集。
+ * 带操作数的指令在指令数组中紧跟一个 int 操作数。
+ */
+final class OpCode {
+    // 压入数值常量，操作数：常量表下标
+    static final int CONST = 0;
+    // 压入字符串常量，操作数：引用表下标
+    static final int STRING = 1;
+    // 读取变量，操作数：变量槽位
+    static final int LOAD = 2;
+
+    // 算术运算
+    static final int ADD = 3;
+    static final int SUB = 4;
+    static final int MUL = 5;
+    static final int DIV = 6;
+    static final int POW = 7;
+    static final int NEG = 8;
+
+    // 比较运算
+    static final int EQ = 9;
+    static final int NEQ = 10;
+    static final int LT = 11;
+    static final int LTE = 12;
+    static final int GT = 13;
+    static final int GTE = 14;
+
+    // 逻辑运算
+    static final int NOT = 15;
+    // 将栈顶转换为 1 或 0
+    static final int BOOL = 16;
+
+    // 内置函数
+    static final int MIN = 17;
+    static final int MAX = 18;
+    static final int ABS = 19;
+    static final int SQRT = 20;
+    static final int LOG = 21;
+
+    // 跳转指令，操作数：跳转目标位置
+    // 无条件跳转
+    static final int JUMP = 22;
+    // 弹出栈顶，为假时跳转
+    static final int JUMP_IF_FALSE = 23;
+    // 栈顶为假时将其置为 0 并跳转，否则弹出栈顶
+    static final int AND_JUMP = 24;
+    // 栈顶为真时将其置为 1 并跳转，否则弹出栈顶
+    static final int OR_JUMP = 25;
+
+    // 读取带点的变量路径，操作数：引用表中 VariablePath 的下标
+    static final int LOAD_PATH = 26;
+
+    private static final String[] NAMES = {
+            "const", "string", "load",
+            "+", "-", "*", "/", "^", "u-",
+            "==", "!=", "<", "<=", ">", ">=",
+            "!", "bool",
+            "min", "max", "abs", "sqrt", "log",
+            "jump", "?", "&&", "||",
+            "load_path"
+    };
+
+    // 每条指令从栈中弹出的值的数量（跳转指令按不跳转的路径计算）
+    private static final int[] POPS = {
+            0, 0, 0,
+            2, 2, 2, 2, 2, 1,
+            2, 2, 2, 2, 2, 2,
+            1, 1,
+            2, 2, 1, 1, 1,
+            0, 1, 1, 1,
+            0
+    };
+
+    private OpCode() {
+    }
+
+    static String name(int op) {
+        return NAMES[op];
+    }
+
+    static int pops(int op) {
+        return POPS[op];
+    }
+
+    static boolean hasOperand(int op) {
+        return op == CONST || op == STRING || op == LOAD || op == LOAD_PATH || isJump(op);
+    }
+
+    static boolean isJump(int op) {
+        return op == JUMP || op == JUMP_IF_FALSE || op == AND_JUMP || op == OR_JUMP;
+    }
+
+    /**
+     * 根据函数名获取对应指令
+     */
+    static int forFunction(String name) {
+        return switch (name) {
+            case "min" -> MIN;
+            case "max" -> MAX;
+            case "abs" -> ABS;
+            case "sqrt" -> SQRT;
+            case "log" -> LOG;
+            default -> throw new IllegalArgumentException("Unknown function: " + name);
+        };
+    }
+}
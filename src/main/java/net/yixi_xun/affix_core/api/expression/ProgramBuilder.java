@@ -0,0 +1,154 @@
+package net.yixi_xun.affix_core.api.expression;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 表达式程序构建器。
+ * 负责生成指令、收集常量，并在编译期模拟栈深度以校验表达式结构。
+ */
+final class ProgramBuilder {
+    private int[] code = new int[16];
+    private int size;
+
+    private double[] constants = new double[4];
+    private int constantCount;
+
+    private final List<Object> refs = new ArrayList<>();
+
+    private int depth;
+    private int maxDepth;
+
+    /**
+     * 生成压入数值常量的指令，相同常量只保存一次
+     */
+    void emitConstant(double value) {
+        int index = -1;
+        for (int i = 0; i < constantCount; i++) {
+            if (Double.compare(constants[i], value) == 0) {
+                index = i;
+                break;
+            }
+        }
+        if (index < 0) {
+            if (constantCount == constants.length) {
+                constants = Arrays.copyOf(constants, constantCount * 2);
+            }
+            index = constantCount;
+            constants[constantCount++] = value;
+        }
+        emit(OpCode.CONST, index);
+    }
+
+    void emitString(String value) {
+        emit(OpCode.STRING, ref(value));
+    }
+
+    /**
+     * 生成读取变量的指令，带点的变量路径在此时预先拆分
+     */
+    void emitLoad(String name) {
+        if (name.indexOf('.') >= 0) {
+            emit(OpCode.LOAD_PATH, ref(VariablePath.compile(name)));
+        } else {
+            emit(OpCode.LOAD, VariableSchema.slotOf(name));
+        }
+    }
+
+    /**
+     * 生成不带操作数的指令
+     */
+    void emit(int op) {
+        int pops = OpCode.pops(op);
+        if (depth < pops) {
+            throw new IllegalArgumentException("Invalid expression: insufficient values for operator " + OpCode.name(op));
+        }
+        depth = depth - pops + 1;
+        maxDepth = Math.max(maxDepth, depth);
+        append(op);
+    }
+
+    /**
+     * 生成跳转指令，目标位置稍后通过 {@link #patch(int)} 回填
+     *
+     * @return 跳转目标操作数所在的位置
+     */
+    int emitJump(int op) {
+        int pops = OpCode.pops(op);
+        if (depth < pops) {
+            throw new IllegalArgumentException("Invalid expression: insufficient values for operator " + OpCode.name(op));
+        }
+        depth -= pops;
+        append(op);
+        append(-1);
+        return size - 1;
+    }
+
+    /**
+     * 将跳转目标回填为当前位置
+     */
+    void patch(int operandPosition) {
+        code[operandPosition] = size;
+    }
+
+    int depth() {
+        return depth;
+    }
+
+    /**
+     * 进入另一条分支时恢复栈深度
+     */
+    void resetDepth(int depth) {
+        this.depth = depth;
+    }
+
+    private void emit(int op, int operand) {
+        depth++;
+        maxDepth = Math.max(maxDepth, depth);
+        append(op);
+        append(operand);
+    }
+
+    private void append(int value) {
+        if (size == code.length) {
+            code = Arrays.copyOf(code, size * 2);
+        }
+        code[size++] = value;
+    }
+
+    private int ref(Object value) {
+        int index = refs.indexOf(value);
+        if (index < 0) {
+            index = refs.size();
+            refs.add(value);
+        }
+        return index;
+    }
+
+    int[] code() {
+        return Arrays.copyOf(code, size);
+    }
+
+    double[] constants() {
+        return Arrays.copyOf(constants, constantCount);
+    }
+
+    Object[] refs() {
+        return refs.toArray();
+    }
+
+    int maxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * 校验程序执行结束时栈中恰好剩余一个值
+     */
+    void checkComplete() {
+        if (depth != 1) {
+            throw new IllegalArgumentException("Invalid expression: incorrect number of values remaining. Stack size: " +
+                    depth + ", Expected: 1");
+        }
+    }
+}
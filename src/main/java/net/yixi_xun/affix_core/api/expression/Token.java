@@ -0,0 +1,17 @@
+package net.yixi_xun.affix_core.api.expression;
+
+/**
+ * 表达式词法单元
+ *
+ * @param position 词法单元在表达式中的起始位置
+ */
+record Token(Type type, String value, int position) {
+    enum Type {
+        NUMBER, VARIABLE, BOOLEAN, STRING,
+        OPERATOR_ADD, OPERATOR_SUB, OPERATOR_MUL, OPERATOR_DIV, OPERATOR_POW,
+        OPERATOR_AND, OPERATOR_OR, OPERATOR_NOT,
+        OPERATOR_EQ, OPERATOR_NEQ, OPERATOR_LT, OPERATOR_LTE, OPERATOR_GT, OPERATOR_GTE,
+        LEFT_PAREN, RIGHT_PAREN, COMMA, QUESTION, COLON,
+        FUNCTION
+    }
+}
@@ -0,0 +1,374 @@
+package net.yixi_xun.affix_core.api.expression;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * 按槽位存放变量的映射。
+ * 在 {@link VariableSchema} 中有槽位的变量存放在一个小型开放寻址表中，编译后的表达式可以按槽位直接读取；
+ * 其它变量名不会分配全局槽位，而是存放在本层的一个小型名称表中。
+ * 同时实现了 {@link Map} 接口，其它代码仍可以像普通 Map 一样按名称读写变量。
+ * 表的大小只与本层实际写入的变量数量有关，与全局已分配的槽位数量无关。
+ * <p>
+ * 可以叠加在另一个变量映射（父层）之上：读取时先查本层，本层没有再查父层；
+ * 写入和删除只影响本层，父层中的变量不会被修改。
+ * <p>
+ * 变量可以通过 {@link #putLazy(String, Supplier)} 延迟计算，只有被读取时才会计算，
+ * 计算结果会被保存，之后的读取直接返回该结果。
+ * <p>
+ * 非线程安全。
+ */
+public class VariableFrame extends AbstractMap<String, Object> {
+    /**
+     * {@link #getBySlot(int)} 在变量不存在时返回的哨兵值
+     */
+    public static final Object ABSENT = new Object();
+    // 表示已存在但值为 null 的变量
+    private static final Object NULL = new Object();
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final VariableFrame parent;
+    // 开放寻址表：keys 中保存槽位 + 1，0 表示空位
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    // 没有槽位的变量，首次写入时创建；同一变量名只会出现在槽位表或名称表之一中
+    private Map<String, Object> named;
+    private EntrySet entrySet;
+
+    public VariableFrame() {
+        this(null);
+    }
+
+    /**
+     * 创建叠加在父层之上的变量映射
+     *
+     * @param parent 父层，为 null 时与无参构造相同
+     */
+    public VariableFrame(VariableFrame parent) {
+        this.parent = parent;
+        this.keys = new int[INITIAL_CAPACITY];
+        this.values = new Object[INITIAL_CAPACITY];
+    }
+
+    /**
+     * 按槽位读取变量
+     *
+     * @return 变量值，变量不存在时返回 {@link #ABSENT}
+     */
+    public Object getBySlot(int slot) {
+        int index = indexOf(slot);
+        if (index >= 0) {
+            Object value = values[index];
+            if (value instanceof Lazy lazy) {
+                // 首次读取时计算，并用结果替换
+                value = lazy.supplier().get();
+                values[index] = value == null ? NULL : value;
+                return value;
+            }
+            return value == NULL ? null : value;
+        }
+        // 写入时还没有槽位的变量保存在名称表中
+        if (named != null && !named.isEmpty()) {
+            Object value = getNamed(VariableSchema.nameOf(slot));
+            if (value != ABSENT) {
+                return value;
+            }
+        }
+        return parent != null ? parent.getBySlot(slot) : ABSENT;
+    }
+
+    /**
+     * 按名称读取变量
+     *
+     * @return 变量值，变量不存在时返回 {@link #ABSENT}
+     */
+    public Object getByName(String name) {
+        int slot = VariableSchema.lookup(name);
+        if (slot >= 0) {
+            return getBySlot(slot);
+        }
+        if (named != null) {
+            Object value = getNamed(name);
+            if (value != ABSENT) {
+                return value;
+            }
+        }
+        return parent != null ? parent.getByName(name) : ABSENT;
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (!(key instanceof String name)) {
+            return null;
+        }
+        Object value = getByName(name);
+        return value == ABSENT ? null : value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (!(key instanceof String name)) {
+            return false;
+        }
+        int slot = VariableSchema.lookup(name);
+        for (VariableFrame layer = this; layer != null; layer = layer.parent) {
+            if (layer.containsLocal(name, slot)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 写入本层的变量
+     *
+     * @return 原有的值，尚未计算的延迟变量返回 null
+     */
+    @Override
+    public Object put(String key, Object value) {
+        Object stored = value == null ? NULL : value;
+        int slot = VariableSchema.lookup(key);
+        if (slot < 0) {
+            if (named == null) {
+                named = new HashMap<>(4);
+            }
+            Object old = named.put(key, stored);
+            if (old != null) {
+                return unwrap(old);
+            }
+            return parent != null ? parent.peek(key) : null;
+        }
+
+        int index = indexOf(slot);
+        if (index >= 0) {
+            Object old = values[index];
+            values[index] = stored;
+            return unwrap(old);
+        }
+        insert(slot, stored);
+        // 变量名在写入名称表之后才分配了槽位，移到槽位表中
+        Object old = named != null ? named.remove(key) : null;
+        if (old != null) {
+            return unwrap(old);
+        }
+        return parent != null ? parent.peek(key) : null;
+    }
+
+    /**
+     * 写入延迟计算的变量，supplier 在变量第一次被读取时调用，且最多调用一次
+     */
+    public void putLazy(String key, Supplier<?> supplier) {
+        put(key, new Lazy(supplier));
+    }
+
+    /**
+     * 只删除本层的变量
+     *
+     * @return 被删除的值，尚未计算的延迟变量返回 null
+     */
+    @Override
+    public Object remove(Object key) {
+        if (!(key instanceof String name)) {
+            return null;
+        }
+        int slot = VariableSchema.lookup(name);
+        int index = slot >= 0 ? indexOf(slot) : -1;
+        if (index >= 0) {
+            Object old = values[index];
+            removeAt(index);
+            return unwrap(old);
+        }
+        return named != null ? unwrap(named.remove(name)) : null;
+    }
+
+    @Override
+    public int size() {
+        if (parent == null) {
+            return size + (named != null ? named.size() : 0);
+        }
+        return names().size();
+    }
+
+    /**
+     * 只清空本层的变量
+     */
+    @Override
+    public void clear() {
+        keys = new int[INITIAL_CAPACITY];
+        values = new Object[INITIAL_CAPACITY];
+        size = 0;
+        named = null;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    // 本层是否有该变量，不会触发延迟计算
+    private boolean containsLocal(String name, int slot) {
+        return (slot >= 0 && indexOf(slot) >= 0) || (named != null && named.containsKey(name));
+    }
+
+    // 读取名称表中的变量
+    private Object getNamed(String name) {
+        Object value = named.get(name);
+        if (value == null) {
+            return ABSENT;
+        }
+        if (value instanceof Lazy lazy) {
+            value = lazy.supplier().get();
+            named.put(name, value == null ? NULL : value);
+            return value;
+        }
+        return value == NULL ? null : value;
+    }
+
+    // 读取变量的已有值，不会触发延迟计算
+    private Object peek(String name) {
+        int slot = VariableSchema.lookup(name);
+        int index = slot >= 0 ? indexOf(slot) : -1;
+        if (index >= 0) {
+            return unwrap(values[index]);
+        }
+        if (named != null && named.containsKey(name)) {
+            return unwrap(named.get(name));
+        }
+        return parent != null ? parent.peek(name) : null;
+    }
+
+    // 从本层开始，各层中未被上层覆盖的变量名
+    private List<String> names() {
+        List<String> result = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (VariableFrame layer = this; layer != null; layer = layer.parent) {
+            for (int key : layer.keys) {
+                if (key != 0) {
+                    String name = VariableSchema.nameOf(key - 1);
+                    if (seen.add(name)) result.add(name);
+                }
+            }
+            if (layer.named != null) {
+                for (String name : layer.named.keySet()) {
+                    if (seen.add(name)) result.add(name);
+                }
+            }
+        }
+        return result;
+    }
+
+    // 返回 put/remove 的旧值；尚未计算的延迟变量返回 null，覆盖或删除时不会为此调用 supplier
+    private static Object unwrap(Object raw) {
+        if (raw instanceof Lazy) {
+            return null;
+        }
+        return raw == NULL ? null : raw;
+    }
+
+    // --- 开放寻址表 ---
+
+    private static int home(int slot, int mask) {
+        return (slot * 0x9E3779B9) >>> 7 & mask;
+    }
+
+    private int indexOf(int slot) {
+        int mask = keys.length - 1;
+        int key = slot + 1;
+        for (int i = home(slot, mask); keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(int slot, Object value) {
+        if ((size + 1) * 2 > keys.length) {
+            int[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new Object[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    insert(oldKeys[i] - 1, oldValues[i]);
+                }
+            }
+        }
+        int mask = keys.length - 1;
+        int i = home(slot, mask);
+        while (keys[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = slot + 1;
+        values[i] = value;
+        size++;
+    }
+
+    // 删除后把后面探测链上的项前移，保持线性探测不需要墓碑
+    private void removeAt(int i) {
+        int mask = keys.length - 1;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (keys[j] == 0) break;
+            int home = home(keys[j] - 1, mask);
+            boolean stays = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+            if (stays) continue;
+            keys[i] = keys[j];
+            values[i] = values[j];
+            i = j;
+        }
+        keys[i] = 0;
+        values[i] = null;
+        size--;
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<String, Object>> {
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+            // 先遍历本层，再依次遍历父层中未被覆盖的变量；遍历的是创建迭代器时的变量名快照
+            Iterator<String> names = names().iterator();
+            return new Iterator<>() {
+                private String last;
+
+                @Override
+                public boolean hasNext() {
+                    return names.hasNext();
+                }
+
+                @Override
+                public Entry<String, Object> next() {
+                    last = names.next();
+                    return new SimpleImmutableEntry<>(last, get(last));
+                }
+
+                @Override
+                public void remove() {
+                    if (last == null) {
+                        throw new IllegalStateException();
+                    }
+                    if (!containsLocal(last, VariableSchema.lookup(last))) {
+                        // 父层中的变量不能通过本层删除
+                        throw new UnsupportedOperationException();
+                    }
+                    VariableFrame.this.remove(last);
+                    last = null;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return VariableFrame.this.size();
+        }
+    }
+
+    // 延迟计算的变量值
+    private record Lazy(Supplier<?> supplier) {
+    }
+}
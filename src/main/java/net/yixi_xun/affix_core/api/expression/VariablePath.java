@@ -0,0 +1,255 @@
+package net.yixi_xun.affix_core.api.expression;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.effect.MobEffect;
+import net.minecraft.world.effect.MobEffectInstance;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.ai.attributes.Attribute;
+import net.minecraft.world.entity.ai.attributes.AttributeInstance;
+import net.minecraftforge.registries.ForgeRegistries;
+import net.minecraftforge.registries.IForgeRegistry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static net.yixi_xun.affix_core.api.ExpressionHelper.parseNbtCompound;
+import static net.yixi_xun.affix_core.api.ExpressionHelper.parseNbtTag;
+
+/**
+ * 预编译的带点变量路径，如 {@code self.effect.speed.duration}。
+ * <p>
+ * 路径在编译时一次性拆分：所有可能的根变量（按长度从长到短）及其已有的槽位、
+ * 以及根变量之后需要访问的属性序列都已确定。求值时只需按槽位查找根变量，
+ * 再沿预先拆分好的属性序列访问，不再进行字符串拆分与拼接。
+ * <p>
+ * 实体的 attribute、effect 和 nbt 属性同样在编译时绑定，只读取路径所指的那一项：
+ * <ul>
+ *   <li>{@code self.attribute.minecraft.generic.max_health}：命名空间后接注册名，
+ *       省略命名空间时视为 minecraft，也兼容 {@code attribute.name.generic.max_health} 这样的翻译键</li>
+ *   <li>{@code self.effect.minecraft.speed.duration}：最后一段为 duration 或 amplifier，
+ *       省略时返回效果是否存在（1 或 0）</li>
+ *   <li>{@code self.nbt.a.b}：直接按键访问实体的持久化数据</li>
+ * </ul>
+ */
+public final class VariablePath {
+    private final String path;
+    // 候选根变量名，按长度从长到短排列，第一个为完整路径
+    private final String[] rootNames;
+    private final int[] rootSlots;
+    // 每个候选根变量之后需要继续访问的属性
+    private final String[][] tails;
+    // 与 tails 对应，在该位置遇到实体时使用的访问器，非实体属性为 null
+    private final EntityAccessor[][] accessors;
+
+    private VariablePath(String path, String[] rootNames, String[][] tails) {
+        this.path = path;
+        this.rootNames = rootNames;
+        this.tails = tails;
+        this.rootSlots = new int[rootNames.length];
+        this.accessors = new EntityAccessor[rootNames.length][];
+        for (int i = 0; i < rootNames.length; i++) {
+            // 只查找已有的槽位，不为路径的各级前缀分配新槽位
+            rootSlots[i] = VariableSchema.lookup(rootNames[i]);
+            String[] tail = tails[i];
+            accessors[i] = new EntityAccessor[tail.length];
+            for (int j = 0; j < tail.length; j++) {
+                accessors[i][j] = bindEntityProperty(tail[j], Arrays.copyOfRange(tail, j + 1, tail.length));
+            }
+        }
+    }
+
+    /**
+     * 编译变量路径
+     */
+    public static VariablePath compile(String path) {
+        String[] parts = path.split("\\.");
+        List<String> rootNames = new ArrayList<>(parts.length + 1);
+        List<String[]> tails = new ArrayList<>(parts.length + 1);
+
+        // 完整路径本身可能就是一个变量
+        rootNames.add(path);
+        tails.add(new String[0]);
+
+        for (int i = parts.length; i > 0; i--) {
+            String rootName = String.join(".", Arrays.copyOfRange(parts, 0, i));
+            if (rootName.equals(path)) continue;
+            rootNames.add(rootName);
+            tails.add(Arrays.copyOfRange(parts, i, parts.length));
+        }
+        return new VariablePath(path, rootNames.toArray(new String[0]), tails.toArray(new String[0][]));
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * 解析路径的值
+     *
+     * @return 路径对应的值，找不到根变量时返回 {@link VariableFrame#ABSENT}
+     */
+    public Object resolve(Map<String, ?> variables) {
+        VariableFrame frame = variables instanceof VariableFrame f ? f : null;
+        for (int i = 0; i < rootNames.length; i++) {
+            Object root;
+            if (frame != null) {
+                root = rootSlots[i] >= 0 ? frame.getBySlot(rootSlots[i]) : frame.getByName(rootNames[i]);
+                if (root == VariableFrame.ABSENT) continue;
+            } else {
+                if (!variables.containsKey(rootNames[i])) continue;
+                root = variables.get(rootNames[i]);
+            }
+            return tails[i].length == 0 ? root : navigate(root, tails[i], accessors[i]);
+        }
+        return VariableFrame.ABSENT;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    // 导航对象路径，遇到实体时由绑定好的访问器读取剩余路径
+    private static Object navigate(Object obj, String[] pathParts, EntityAccessor[] entityAccessors) {
+        Object current = obj;
+
+        for (int i = 0; i < pathParts.length; i++) {
+            if (current == null) return 0.0;
+
+            LivingEntity entity;
+            if (current instanceof Map<?, ?> map) {
+                if (map.containsKey(pathParts[i])) {
+                    // 获取map中的值
+                    current = map.get(pathParts[i]);
+                    continue;
+                }
+                // 检测到 entity_ref 时处理 attribute/effect/nbt
+                if (!(map.get("entity_ref") instanceof LivingEntity ref)) {
+                    return 0.0;
+                }
+                entity = ref;
+            } else if (current instanceof LivingEntity living) {
+                entity = living;
+            } else {
+                return 0.0;
+            }
+            EntityAccessor accessor = entityAccessors[i];
+            return accessor != null ? accessor.get(entity) : 0.0;
+        }
+        return current;
+    }
+
+    // 读取实体属性，访问器会消耗路径中剩余的部分
+    @FunctionalInterface
+    private interface EntityAccessor {
+        Object get(LivingEntity entity);
+    }
+
+    // 根据属性名和其后的路径绑定实体访问器
+    private static EntityAccessor bindEntityProperty(String part, String[] rest) {
+        return switch (part) {
+            case "attribute" -> rest.length == 0 ? VariablePath::getEntityAttributes : bindAttribute(rest);
+            case "effect" -> rest.length == 0 ? VariablePath::getEntityEffects : bindEffect(rest);
+            case "nbt" -> rest.length == 0
+                    ? entity -> parseNbtCompound(entity.getPersistentData())
+                    : entity -> navigateNbt(entity.getPersistentData(), rest);
+            default -> null;
+        };
+    }
+
+    private static EntityAccessor bindAttribute(String[] id) {
+        Attribute attribute = findRegistryEntry(ForgeRegistries.ATTRIBUTES, id, Attribute::getDescriptionId);
+        if (attribute == null) {
+            return entity -> 0.0;
+        }
+        return entity -> {
+            AttributeInstance instance = entity.getAttribute(attribute);
+            return instance != null ? instance.getValue() : 0.0;
+        };
+    }
+
+    private static EntityAccessor bindEffect(String[] rest) {
+        String field = rest[rest.length - 1];
+        boolean hasField = rest.length > 1 && (field.equals("duration") || field.equals("amplifier"));
+        String[] id = hasField ? Arrays.copyOf(rest, rest.length - 1) : rest;
+
+        MobEffect effect = findRegistryEntry(ForgeRegistries.MOB_EFFECTS, id, MobEffect::getDescriptionId);
+        if (effect == null) {
+            return entity -> 0.0;
+        }
+        if (!hasField) {
+            return entity -> entity.hasEffect(effect) ? 1.0 : 0.0;
+        }
+        boolean duration = field.equals("duration");
+        return entity -> {
+            MobEffectInstance instance = entity.getEffect(effect);
+            if (instance == null) return 0.0;
+            return duration ? instance.getDuration() : instance.getAmplifier();
+        };
+    }
+
+    /**
+     * 按路径查找注册项，依次尝试 "命名空间:路径"、"minecraft:路径" 和翻译键。
+     * 只在编译时调用一次
+     */
+    private static <T> T findRegistryEntry(IForgeRegistry<T> registry, String[] segments,
+                                           Function<T, String> descriptionId) {
+        String joined = String.join(".", segments);
+        if (segments.length > 1) {
+            ResourceLocation key = ResourceLocation.tryBuild(segments[0],
+                    String.join(".", Arrays.copyOfRange(segments, 1, segments.length)));
+            if (key != null && registry.containsKey(key)) {
+                return registry.getValue(key);
+            }
+        }
+        ResourceLocation key = ResourceLocation.tryBuild("minecraft", joined);
+        if (key != null && registry.containsKey(key)) {
+            return registry.getValue(key);
+        }
+        for (T entry : registry) {
+            if (joined.equals(descriptionId.apply(entry))) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    // 直接按键访问 NBT，只转换最终读取到的标签
+    private static Object navigateNbt(CompoundTag compound, String[] keys) {
+        Tag current = compound;
+        for (String key : keys) {
+            if (!(current instanceof CompoundTag tag) || !tag.contains(key)) {
+                return 0.0;
+            }
+            current = tag.get(key);
+        }
+        return parseNbtTag(current);
+    }
+
+    private static Map<String, Object> getEntityAttributes(LivingEntity entity) {
+        Map<String, Object> attributes = new HashMap<>();
+        for (Attribute attribute : ForgeRegistries.ATTRIBUTES) {
+            AttributeInstance instance = entity.getAttribute(attribute);
+            if (instance != null) {
+                attributes.put(attribute.getDescriptionId(), instance.getValue());
+            }
+        }
+        return attributes;
+    }
+
+    private static Map<String, Object> getEntityEffects(LivingEntity entity) {
+        Map<String, Object> effects = new HashMap<>();
+        for (MobEffectInstance effect : entity.getActiveEffects()) {
+            String effectId = effect.getEffect().getDescriptionId();
+            effects.put(effectId + ".duration", effect.getDuration());
+            effects.put(effectId + ".amplifier", effect.getAmplifier());
+        }
+        return effects;
+    }
+}
@@ -0,0 +1,93 @@
+package net.yixi_xun.affix_core.api.expression;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 全局变量表。
+ * 为每个变量名分配一个固定的整数槽位，表达式在编译时把变量名解析为槽位，
+ * 求值时通过 {@link VariableFrame} 按槽位直接读取变量值，无需进行字符串哈希。
+ * <p>
+ * 词条上下文中的常用变量在此预先声明，其它变量名只在作为变量被编译进表达式时分配槽位，
+ * 槽位不会回收，因此不要为运行时产生的任意名称分配槽位；没有槽位的变量由 {@link VariableFrame} 按名称保存。
+ */
+public final class VariableSchema {
+    private static final Map<String, Integer> SLOTS = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[64];
+    private static int size;
+
+    static {
+        // 上下文基础变量
+        declare("random", "trigger_count", "time", "world_name", "self");
+        // 事件变量
+        declare("target", "attacker", "killer", "damage", "damage_type", "is_indirect", "item", "weapon", "ammo",
+                "slot", "block", "distance", "duration", "amplifier", "message", "attack_cooldown",
+                "arrow_damage", "arrow_speed", "pierce_level", "durability", "max_durability", "index");
+        // 提示框变量
+        declare("owner", "shift", "ctrl", "alt");
+        // 实体数据变量
+        declare("health", "max_health", "absorption", "level", "x", "y", "z", "speed", "name", "type", "uuid",
+                "is_sprinting", "is_sneaking", "on_ground", "is_swimming", "entity_ref");
+    }
+
+    private VariableSchema() {
+    }
+
+    /**
+     * 预先声明变量名
+     */
+    public static void declare(String... variableNames) {
+        for (String name : variableNames) {
+            slotOf(name);
+        }
+    }
+
+    /**
+     * 获取变量名对应的槽位，不存在时分配新槽位。
+     * 只用于预先声明的变量和表达式编译，其它情况使用 {@link #lookup(String)}
+     */
+    public static int slotOf(String name) {
+        Integer slot = SLOTS.get(name);
+        return slot != null ? slot : register(name);
+    }
+
+    /**
+     * 查找变量名对应的槽位，不存在时返回 -1
+     */
+    public static int lookup(String name) {
+        Integer slot = SLOTS.get(name);
+        return slot != null ? slot : -1;
+    }
+
+    /**
+     * 获取槽位对应的变量名
+     */
+    public static String nameOf(int slot) {
+        return names[slot];
+    }
+
+    /**
+     * 当前已分配的槽位数量
+     */
+    public static synchronized int size() {
+        return size;
+    }
+
+    private static synchronized int register(String name) {
+        Integer existing = SLOTS.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        String[] current = names;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, size * 2);
+        }
+        int slot = size++;
+        current[slot] = name;
+        // 先发布名称数组，再发布槽位，保证通过槽位总能读到名称
+        names = current;
+        SLOTS.put(name, slot);
+        return slot;
+    }
+}
@@ -6,12 +6,16 @@ import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.context.CommandContext;
 import com.mojang.brigadier.suggestion.Suggestions;
 import com.mojang.brigadier.suggestion.SuggestionsBuilder;
+import net.minecraft.ChatFormatting;
 import net.minecraft.commands.CommandSourceStack;
 import net.minecraft.commands.Commands;
 import net.minecraft.commands.arguments.EntityArgument;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.TagParser;
+import net.minecraft.network.chat.ClickEvent;
 import net.minecraft.network.chat.Component;
+import net.minecraft.network.chat.HoverEvent;
+import net.minecraft.network.chat.MutableComponent;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.LivingEntity;
@@ -21,10 +25,16 @@ import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
 import net.yixi_xun.affix_core.affix.Affix;
 import net.yixi_xun.affix_core.affix.AffixManager;
+import net.yixi_xun.affix_core.affix.AffixProcessor;
 import net.yixi_xun.affix_core.affix.operation.IOperation;
 import net.yixi_xun.affix_core.affix.operation.OperationManager;
 import net.yixi_xun.affix_core.affix.operation.VariableOperation;
 import net.yixi_xun.affix_core.api.AffixEvent;
+import net.yixi_xun.affix_core.api.ExpressionHelper;
+import net.yixi_xun.affix_core.api.expression.CompiledExpression;
+import net.yixi_xun.affix_core.profiling.AffixProfiler;
+import net.yixi_xun.affix_core.util.CooldownStore;
+import net.yixi_xun.affix_core.util.LruCache;
 
 import java.util.List;
 import java.util.Map;
@@ -76,6 +86,20 @@ public class AffixCommands {
                                 .executes(AffixCommands::refreshAffixes))
                         .then(Commands.literal("help")
                                 .executes(AffixCommands::showHelp))
+                        .then(Commands.literal("stats")
+                                .requires(source -> source.hasPermission(2))
+                                .executes(AffixCommands::showStats))
+                        .then(Commands.literal("profile")
+                                .requires(source -> source.hasPermission(2))
+                                .then(Commands.literal("start")
+                                        .executes(AffixCommands::startProfiler))
+                                .then(Commands.literal("stop")
+                                        .executes(AffixCommands::stopProfiler))
+                                .then(Commands.literal("report")
+                                        .executes(context -> profileReport(context, 10))
+                                        .then(Commands.argument("count", IntegerArgumentType.integer(1, 100))
+                                                .executes(context -> profileReport(context,
+                                                        IntegerArgumentType.getInteger(context, "count"))))))
                         .then(Commands.literal("clear_entity_vars")
                                 .then(Commands.argument("target", EntityArgument.entity())
                                         .executes(context -> clearEntityVars(context, EntityArgument.getEntity(context, "target"))))
@@ -149,6 +173,10 @@ public class AffixCommands {
         if (itemStack == null) return 0;
 
         AffixManager.clearCooldowns(itemStack);
+        // 同时清除玩家自身的实体范围冷却
+        if (context.getSource().getEntity() instanceof LivingEntity living) {
+            AffixManager.clearCooldowns(living);
+        }
         context.getSource().sendSuccess(() -> Component.literal("成功清除所有冷却"), true);
         return 1;
     }
@@ -190,6 +218,10 @@ public class AffixCommands {
 
             // 合并NBT数据到当前物品
             itemStack.getOrCreateTag().merge(parsedNBT);
+            if (parsedNBT.contains(AffixManager.AFFIX_TAG_KEY)) {
+                // 词缀列表被覆盖，更新版本戳并刷新缓存
+                AffixManager.refreshAffixes(itemStack);
+            }
 
             context.getSource().sendSuccess(() -> Component.literal("成功将NBT数据合并到物品"), true);
             return 1;
@@ -312,6 +344,95 @@ public class AffixCommands {
         return 0;
     }
     
+    private static int showStats(CommandContext<CommandSourceStack> context) {
+        LruCache<String, CompiledExpression> cache = ExpressionHelper.getExpressionCache();
+        context.getSource().sendSuccess(() -> Component.literal("=== Affix 运行统计 ==="), false);
+        context.getSource().sendSuccess(() -> Component.literal(String.format(
+                "表达式缓存: %d/%d, 命中 %d, 未命中 %d, 命中率 %.1f%%, 淘汰 %d",
+                cache.size(), cache.getCapacity(), cache.getHits(), cache.getMisses(),
+                cache.getHitRate() * 100, cache.getEvictions())), false);
+        LruCache<UUID, AffixManager.CachedAffixes> affixCache = AffixManager.getAffixCache();
+        context.getSource().sendSuccess(() -> Component.literal(String.format(
+                "词缀缓存: %d/%d, 命中 %d, 未命中 %d, 命中率 %.1f%%, 淘汰 %d, 失效 %d",
+                affixCache.size(), affixCache.getCapacity(), affixCache.getHits(), affixCache.getMisses(),
+                affixCache.getHitRate() * 100, affixCache.getEvictions(), affixCache.getInvalidations())), false);
+        CooldownStore cooldowns = AffixManager.getCooldownStore();
+        context.getSource().sendSuccess(() -> Component.literal(String.format(
+                "冷却: 记录 %d, 已回收过期 %d", cooldowns.size(), cooldowns.getReclaimed())), false);
+        context.getSource().sendSuccess(() -> Component.literal(String.format(
+                "词缀预算: 本 tick 已用 %.2fms/%.2fms, 推迟 %d, 丢弃 %d, 队列 %d, 超预算 tick %d",
+                AffixProcessor.getTickSpentMillis(), AffixProcessor.getTickBudgetMillis(),
+                AffixProcessor.getDeferredCount(), AffixProcessor.getDroppedCount(),
+                AffixProcessor.getDeferredQueueSize(), AffixProcessor.getOverBudgetTicks())), false);
+        return 1;
+    }
+
+    private static int startProfiler(CommandContext<CommandSourceStack> context) {
+        AffixProfiler.start();
+        context.getSource().sendSuccess(() -> Component.literal("词缀性能分析已开始，之前的数据已清空"), true);
+        return 1;
+    }
+
+    private static int stopProfiler(CommandContext<CommandSourceStack> context) {
+        if (!AffixProfiler.isEnabled()) {
+            context.getSource().sendFailure(Component.literal("词缀性能分析未开启"));
+            return 0;
+        }
+        AffixProfiler.stop();
+        context.getSource().sendSuccess(() -> Component.literal(String.format(
+                "词缀性能分析已停止，共记录 %.1f 秒，使用 /affix profile report 查看结果",
+                AffixProfiler.getDurationNanos() / 1e9)), true);
+        return 1;
+    }
+
+    private static int profileReport(CommandContext<CommandSourceStack> context, int count) {
+        if (AffixProfiler.getDurationNanos() == 0) {
+            context.getSource().sendFailure(Component.literal("没有性能分析数据，请先使用 /affix profile start"));
+            return 0;
+        }
+        CommandSourceStack source = context.getSource();
+        source.sendSuccess(() -> Component.literal(String.format("=== 词缀性能分析 (%.1f 秒%s) ===",
+                AffixProfiler.getDurationNanos() / 1e9, AffixProfiler.isEnabled() ? ", 记录中" : "")), false);
+
+        source.sendSuccess(() -> Component.literal("-- 触发器 --"), false);
+        for (var entry : AffixProfiler.topTriggers(count)) {
+            source.sendSuccess(() -> Component.literal(entry.getKey() + ": " + formatStats(entry.getValue())), false);
+        }
+
+        source.sendSuccess(() -> Component.literal("-- 词缀 --"), false);
+        for (AffixProfiler.AffixStats stats : AffixProfiler.topAffixes(count)) {
+            Affix affix = stats.getAffix();
+            String uuid = affix.uuid().toString();
+            // 物品名称悬停显示物品，点击 UUID 复制
+            MutableComponent line = Component.empty()
+                    .append(stats.getItem().getDisplayName())
+                    .append(" ")
+                    .append(Component.literal(uuid.substring(0, 8)).withStyle(style -> style
+                            .withColor(ChatFormatting.GRAY)
+                            .withClickEvent(new ClickEvent(ClickEvent.Action.COPY_TO_CLIPBOARD, uuid))
+                            .withHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_TEXT, Component.literal(uuid)))))
+                    .append(String.format(" %s/%s, 持有者 %s, %d 次, 共 %.2fms",
+                            affix.trigger(), affix.operation() != null ? affix.operation().getType() : "无",
+                            stats.getHolder(), stats.getCalls(), stats.getTotalNanos() / 1e6));
+            source.sendSuccess(() -> line, false);
+            source.sendSuccess(() -> Component.literal(String.format("  上下文 %s | 条件 %s | 操作 %s",
+                    formatStats(stats.getContext()), formatStats(stats.getCondition()),
+                    formatStats(stats.getOperation()))), false);
+        }
+
+        source.sendSuccess(() -> Component.literal("-- 操作 --"), false);
+        for (var entry : AffixProfiler.topOperations(count)) {
+            source.sendSuccess(() -> Component.literal(entry.getKey() + ": " + formatStats(entry.getValue())), false);
+        }
+        return 1;
+    }
+
+    private static String formatStats(AffixProfiler.Stats stats) {
+        return String.format("%d 次, 共 %.2fms, 平均 %.1fµs, p99 <%dµs, 最大 %.1fµs",
+                stats.getCount(), stats.getTotalNanos() / 1e6, stats.getAverageMicros(),
+                stats.getPercentileMicros(0.99), stats.getMaxNanos() / 1e3);
+    }
+
     private static int showHelp(CommandContext<CommandSourceStack> context) {
         context.getSource().sendSuccess(() -> Component.literal("=== Affix 命令帮助 ==="), false);
         context.getSource().sendSuccess(() -> Component.literal("/affix list - 列出当前物品的所有词缀"), false);
@@ -323,6 +444,8 @@ public class AffixCommands {
         context.getSource().sendSuccess(() -> Component.literal("/affix trigger <message> - 触发自定义消息事件"), false);
         context.getSource().sendSuccess(() -> Component.literal("/affix cooldown_clear - 清除冷却数据"), false);
         context.getSource().sendSuccess(() -> Component.literal("/affix merge <nbt_data> - 合并NBT数据到物品"), false);
+        context.getSource().sendSuccess(() -> Component.literal("/affix stats - 查看缓存等运行统计"), false);
+        context.getSource().sendSuccess(() -> Component.literal("/affix profile <start|stop|report [count]> - 词缀性能分析"), false);
         return 1;
     }
 }
\ No newline at end of file
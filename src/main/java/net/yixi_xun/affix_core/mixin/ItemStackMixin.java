@@ -5,7 +5,10 @@ import net.minecraft.network.chat.Component;
 import net.minecraft.network.chat.MutableComponent;
 import net.minecraft.util.Mth;
 import net.minecraft.world.item.ItemStack;
+import net.yixi_xun.affix_core.affix.AffixCacheHolder;
+import net.yixi_xun.affix_core.affix.AffixManager;
 import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
@@ -13,7 +16,21 @@ import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 import static net.yixi_xun.affix_core.tooltip.TooltipHandler.processColors;
 
 @Mixin(ItemStack.class)
-public abstract class ItemStackMixin {
+public abstract class ItemStackMixin implements AffixCacheHolder {
+
+    // 解析出的词缀列表，见 AffixManager#getAffixes
+    @Unique
+    private AffixManager.CachedAffixes affix_core$cachedAffixes;
+
+    @Override
+    public AffixManager.CachedAffixes affix_core$getCachedAffixes() {
+        return affix_core$cachedAffixes;
+    }
+
+    @Override
+    public void affix_core$setCachedAffixes(AffixManager.CachedAffixes cached) {
+        affix_core$cachedAffixes = cached;
+    }
 
     @Inject(
         method = "getMaxDamage()I",
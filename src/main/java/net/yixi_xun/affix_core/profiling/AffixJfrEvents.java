@@ -0,0 +1,102 @@
+package net.yixi_xun.affix_core.profiling;
+
+import jdk.jfr.*;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.entity.LivingEntity;
+
+/**
+ * 词缀相关的 Java Flight Recorder 事件
+ * 默认关闭，需要在 JFR 配置中启用，例如：
+ * <pre>
+ * jfr configure --input default.jfc affix_core.AffixDispatch#enabled=true affix_core.AffixOperation#enabled=true
+ * </pre>
+ * 关闭时事件对象会被 JIT 消除，begin/commit 不产生开销；字段只在 {@code shouldCommit()} 为真时填充。
+ */
+public class AffixJfrEvents {
+
+    private static final String CATEGORY = "Affix Core";
+
+    /**
+     * 实体类型的注册名，用于填充事件字段
+     */
+    public static String entityType(LivingEntity entity) {
+        return entity != null ? EntityType.getKey(entity.getType()).toString() : null;
+    }
+
+    /**
+     * 处理单个词缀：检查冷却、创建上下文、条件求值和执行操作
+     */
+    @Name("affix_core.AffixDispatch")
+    @Label("Affix Dispatch")
+    @Category(CATEGORY)
+    @Description("Processing of a single affix for one trigger")
+    @Enabled(false)
+    public static final class Dispatch extends Event {
+        @Label("Trigger")
+        public String trigger;
+
+        @Label("Affix UUID")
+        public String affix;
+
+        @Label("Operation Type")
+        public String operationType;
+
+        @Label("Entity Type")
+        public String entityType;
+
+        @Label("Executed")
+        @Description("Whether the affix was off cooldown and its condition was met")
+        public boolean executed;
+    }
+
+    /**
+     * 执行一次词缀操作
+     */
+    @Name("affix_core.AffixOperation")
+    @Label("Affix Operation")
+    @Category(CATEGORY)
+    @Description("One IOperation.apply call, including affixes it triggers indirectly")
+    @Enabled(false)
+    public static final class Operation extends Event {
+        @Label("Trigger")
+        public String trigger;
+
+        @Label("Operation Type")
+        public String operationType;
+
+        @Label("Entity Type")
+        public String entityType;
+    }
+
+    /**
+     * 在 tick 末尾结算排队的额外伤害
+     */
+    @Name("affix_core.ExtraHurtTick")
+    @Label("Extra Hurt Tick")
+    @Category(CATEGORY)
+    @Description("Applying queued extra damage at the end of a server tick")
+    @Enabled(false)
+    public static final class ExtraHurtTick extends Event {
+        @Label("Targets")
+        public int targets;
+
+        @Label("Damage Entries")
+        public int entries;
+    }
+
+    /**
+     * 执行到期的延迟服务端任务
+     */
+    @Name("affix_core.ServerWorkTick")
+    @Label("Server Work Tick")
+    @Category(CATEGORY)
+    @Description("Running queued server work that is due this tick")
+    @Enabled(false)
+    public static final class ServerWorkTick extends Event {
+        @Label("Queued")
+        public int queued;
+
+        @Label("Executed")
+        public int executed;
+    }
+}
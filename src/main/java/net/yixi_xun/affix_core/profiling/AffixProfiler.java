@@ -0,0 +1,236 @@
+package net.yixi_xun.affix_core.profiling;
+
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.item.ItemStack;
+import net.yixi_xun.affix_core.affix.Affix;
+
+import java.util.*;
+import java.util.function.ToLongFunction;
+
+/**
+ * 词缀性能分析器
+ * 分别统计每个触发器、每个词缀（按 UUID）和每种操作类型的调用次数与耗时分布，
+ * 词缀的耗时再细分为创建上下文、条件求值和执行操作三个阶段。
+ * <p>
+ * 使用方式：
+ * <pre>
+ * long start = AffixProfiler.begin();
+ * ...
+ * AffixProfiler.recordCondition(affix, start);
+ * </pre>
+ * 未开启时 {@link #begin()} 返回 0，record 方法直接返回，不读取时钟也不分配对象。
+ * 操作的耗时包含其间接触发的其他词缀的耗时。所有数据只在服务端线程访问。
+ */
+public class AffixProfiler {
+
+    // 耗时直方图的桶数：第 i 个桶统计 [2^(i-1), 2^i) 微秒，最后一个桶统计更长的耗时
+    public static final int HISTOGRAM_BUCKETS = 20;
+
+    private static boolean enabled;
+    private static long startedAt;
+    private static long stoppedAt;
+
+    private static final Map<String, Stats> triggerStats = new HashMap<>();
+    private static final Map<UUID, AffixStats> affixStats = new HashMap<>();
+    private static final Map<String, Stats> operationStats = new HashMap<>();
+
+    /**
+     * 清空之前的数据并开始记录
+     */
+    public static void start() {
+        triggerStats.clear();
+        affixStats.clear();
+        operationStats.clear();
+        startedAt = System.nanoTime();
+        stoppedAt = 0;
+        enabled = true;
+    }
+
+    /**
+     * 停止记录，已有数据保留到下一次开始
+     */
+    public static void stop() {
+        if (enabled) {
+            stoppedAt = System.nanoTime();
+        }
+        enabled = false;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 已记录的时长（纳秒）
+     */
+    public static long getDurationNanos() {
+        if (startedAt == 0) return 0;
+        return (enabled ? System.nanoTime() : stoppedAt) - startedAt;
+    }
+
+    /**
+     * 开始计时，未开启时返回 0
+     */
+    public static long begin() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * 记录一次触发器分发的耗时
+     */
+    public static void recordTrigger(String trigger, long start) {
+        if (start == 0L || !enabled) return;
+        triggerStats.computeIfAbsent(trigger, k -> new Stats()).record(System.nanoTime() - start);
+    }
+
+    /**
+     * 记录创建词缀上下文的耗时，同时记下词缀所在的物品和持有者
+     */
+    public static void recordContext(Affix affix, ItemStack stack, LivingEntity owner, long start) {
+        if (start == 0L || !enabled) return;
+        long nanos = System.nanoTime() - start;
+        AffixStats stats = affixStats.get(affix.uuid());
+        if (stats == null) {
+            stats = new AffixStats(affix, stack.copy(), owner.getName().getString());
+            affixStats.put(affix.uuid(), stats);
+        }
+        stats.calls++;
+        stats.context.record(nanos);
+    }
+
+    /**
+     * 记录条件求值的耗时
+     */
+    public static void recordCondition(Affix affix, long start) {
+        if (start == 0L || !enabled) return;
+        AffixStats stats = affixStats.get(affix.uuid());
+        if (stats != null) {
+            stats.condition.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 记录一次操作执行的耗时，同时计入词缀和操作类型
+     */
+    public static void recordOperation(Affix affix, String operationType, long start) {
+        if (start == 0L || !enabled) return;
+        long nanos = System.nanoTime() - start;
+        operationStats.computeIfAbsent(operationType, k -> new Stats()).record(nanos);
+        AffixStats stats = affixStats.get(affix.uuid());
+        if (stats != null) {
+            stats.operation.record(nanos);
+        }
+    }
+
+    /**
+     * 按总耗时从高到低返回前 limit 个触发器
+     */
+    public static List<Map.Entry<String, Stats>> topTriggers(int limit) {
+        return top(triggerStats, limit, Stats::getTotalNanos);
+    }
+
+    /**
+     * 按总耗时从高到低返回前 limit 个词缀
+     */
+    public static List<AffixStats> topAffixes(int limit) {
+        return top(affixStats, limit, AffixStats::getTotalNanos).stream().map(Map.Entry::getValue).toList();
+    }
+
+    /**
+     * 按总耗时从高到低返回前 limit 种操作
+     */
+    public static List<Map.Entry<String, Stats>> topOperations(int limit) {
+        return top(operationStats, limit, Stats::getTotalNanos);
+    }
+
+    private static <K, V> List<Map.Entry<K, V>> top(Map<K, V> map, int limit, ToLongFunction<V> key) {
+        return map.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<K, V> entry) -> key.applyAsLong(entry.getValue())).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * 调用次数与耗时分布
+     */
+    public static class Stats {
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+        private final long[] histogram = new long[HISTOGRAM_BUCKETS];
+
+        void record(long nanos) {
+            count++;
+            totalNanos += nanos;
+            if (nanos > maxNanos) {
+                maxNanos = nanos;
+            }
+            long micros = nanos / 1000;
+            int bucket = micros == 0 ? 0 : 64 - Long.numberOfLeadingZeros(micros);
+            histogram[Math.min(bucket, HISTOGRAM_BUCKETS - 1)]++;
+        }
+
+        public long getCount() { return count; }
+        public long getTotalNanos() { return totalNanos; }
+        public long getMaxNanos() { return maxNanos; }
+
+        public double getAverageMicros() {
+            return count == 0 ? 0 : totalNanos / 1000.0 / count;
+        }
+
+        /**
+         * 根据直方图估算分位数的上界（微秒）
+         *
+         * @param quantile 0 到 1 之间的分位
+         */
+        public long getPercentileMicros(double quantile) {
+            long threshold = (long) Math.ceil(count * quantile);
+            long seen = 0;
+            for (int i = 0; i < HISTOGRAM_BUCKETS - 1; i++) {
+                seen += histogram[i];
+                if (seen >= threshold) {
+                    return 1L << i;
+                }
+            }
+            return maxNanos / 1000;
+        }
+
+        public long[] getHistogram() {
+            return histogram.clone();
+        }
+    }
+
+    /**
+     * 单个词缀的统计，分为上下文、条件和操作三个阶段
+     */
+    public static class AffixStats {
+        private final Affix affix;
+        private final ItemStack item;
+        private final String holder;
+        private long calls;
+        private final Stats context = new Stats();
+        private final Stats condition = new Stats();
+        private final Stats operation = new Stats();
+
+        AffixStats(Affix affix, ItemStack item, String holder) {
+            this.affix = affix;
+            this.item = item;
+            this.holder = holder;
+        }
+
+        public Affix getAffix() { return affix; }
+        /**
+         * 第一次记录时词缀所在物品的副本
+         */
+        public ItemStack getItem() { return item; }
+        public String getHolder() { return holder; }
+        public long getCalls() { return calls; }
+        public Stats getContext() { return context; }
+        public Stats getCondition() { return condition; }
+        public Stats getOperation() { return operation; }
+
+        public long getTotalNanos() {
+            return context.getTotalNanos() + condition.getTotalNanos() + operation.getTotalNanos();
+        }
+    }
+}
@@ -15,6 +15,7 @@ import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
 import net.yixi_xun.affix_core.affix.AffixContext;
 import net.yixi_xun.affix_core.api.ExpressionHelper;
+import net.yixi_xun.affix_core.api.expression.VariableFrame;
 
 import java.awt.*;
 import java.util.*;
@@ -81,7 +82,7 @@ public class TooltipHandler {
      * 创建上下文变量映射
      */
     private static Map<String, Object> createContextVariables(Player player, ItemStack itemStack) {
-        Map<String, Object> variables = new HashMap<>();
+        Map<String, Object> variables = new VariableFrame();
         
         // 基础变量
         variables.put("random", Math.random());
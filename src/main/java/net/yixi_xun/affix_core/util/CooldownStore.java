@@ -0,0 +1,276 @@
+package net.yixi_xun.affix_core.util;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * 冷却存储
+ * 以 (持有者ID, 冷却键) 为键保存冷却结束时间，持有者可以是物品、实体或全局，冷却键为词缀 UUID 或冷却组。
+ * 键直接以四个 long 存放在开放寻址（线性探测）的数组中，查询和写入不创建任何对象。
+ * <p>
+ * 过期的冷却由基于游戏时间的时间轮回收：写入冷却时按结束时间放入对应的槽，
+ * 时间推进到该槽时移除已过期的冷却，超过一圈的冷却留在槽中等待下一圈。
+ * 时间在写入冷却时推进，也可以通过 {@link #expire(long)} 主动推进。
+ * <p>
+ * 所有操作都在同一把锁内完成。
+ */
+public class CooldownStore {
+    // 时间轮的槽数，每个槽对应一个游戏刻
+    private static final int WHEEL_SIZE = 256;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    // 时间轮中每项占用的 long 数：四个键和结束时间
+    private static final int WHEEL_ENTRY = 5;
+    private static final int INITIAL_CAPACITY = 64;
+
+    // 哈希表
+    private long[] ownerMost;
+    private long[] ownerLeast;
+    private long[] keyMost;
+    private long[] keyLeast;
+    private long[] expireAt;
+    private boolean[] used;
+    private int mask;
+    private int size;
+
+    // 时间轮
+    private final long[][] wheel = new long[WHEEL_SIZE][];
+    private final int[] wheelCounts = new int[WHEEL_SIZE];
+    // 时间轮已处理到的游戏时间，Long.MIN_VALUE 表示尚未开始
+    private long currentTick = Long.MIN_VALUE;
+
+    private long reclaimed;
+
+    public CooldownStore() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * 冷却是否已经结束，没有记录的冷却视为已结束
+     */
+    public boolean isCooldownOver(UUID owner, UUID key, long now) {
+        return isCooldownOver(owner.getMostSignificantBits(), owner.getLeastSignificantBits(),
+                key.getMostSignificantBits(), key.getLeastSignificantBits(), now);
+    }
+
+    public synchronized boolean isCooldownOver(long ownerMost, long ownerLeast, long keyMost, long keyLeast, long now) {
+        int slot = find(ownerMost, ownerLeast, keyMost, keyLeast);
+        return slot < 0 || expireAt[slot] <= now;
+    }
+
+    /**
+     * 设置冷却结束时间
+     *
+     * @param expireTime 冷却结束的游戏时间
+     * @param now 当前游戏时间，用于推进时间轮
+     */
+    public void setCooldown(UUID owner, UUID key, long expireTime, long now) {
+        setCooldown(owner.getMostSignificantBits(), owner.getLeastSignificantBits(),
+                key.getMostSignificantBits(), key.getLeastSignificantBits(), expireTime, now);
+    }
+
+    public synchronized void setCooldown(long ownerMost, long ownerLeast, long keyMost, long keyLeast,
+                                         long expireTime, long now) {
+        expire(now);
+        if (expireTime <= now) {
+            // 已经结束的冷却无需保存
+            int slot = find(ownerMost, ownerLeast, keyMost, keyLeast);
+            if (slot >= 0) {
+                removeAt(slot);
+            }
+            return;
+        }
+
+        int slot = find(ownerMost, ownerLeast, keyMost, keyLeast);
+        if (slot >= 0) {
+            if (expireAt[slot] == expireTime) return;
+            expireAt[slot] = expireTime;
+        } else {
+            if ((size + 1) * 2 > used.length) {
+                rehash(used.length * 2);
+            }
+            insert(ownerMost, ownerLeast, keyMost, keyLeast, expireTime);
+        }
+        // 旧的时间轮项在其槽被处理时因结束时间不一致而丢弃
+        schedule(ownerMost, ownerLeast, keyMost, keyLeast, expireTime);
+    }
+
+    /**
+     * 推进时间轮到指定游戏时间，移除已过期的冷却
+     */
+    public synchronized void expire(long now) {
+        if (currentTick == Long.MIN_VALUE || now < currentTick) {
+            // 首次使用或时间倒退（如切换存档）时从当前时间开始
+            currentTick = now;
+            return;
+        }
+        long ticks = Math.min(now - currentTick, WHEEL_SIZE);
+        for (long i = 1; i <= ticks; i++) {
+            processBucket((int) ((currentTick + i) & WHEEL_MASK), now);
+        }
+        currentTick = now;
+    }
+
+    /**
+     * 移除指定持有者的所有冷却
+     */
+    public synchronized void clearOwner(UUID owner) {
+        long most = owner.getMostSignificantBits();
+        long least = owner.getLeastSignificantBits();
+        // 删除会移动后面的项，因此删除后重新检查当前位置
+        for (int i = 0; i < used.length; ) {
+            if (used[i] && ownerMost[i] == most && ownerLeast[i] == least) {
+                removeAt(i);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        allocate(INITIAL_CAPACITY);
+        Arrays.fill(wheel, null);
+        Arrays.fill(wheelCounts, 0);
+    }
+
+    /**
+     * 当前保存的冷却数量
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * 由时间轮回收的过期冷却数量
+     */
+    public synchronized long getReclaimed() {
+        return reclaimed;
+    }
+
+    // --- 哈希表 ---
+
+    private void allocate(int capacity) {
+        ownerMost = new long[capacity];
+        ownerLeast = new long[capacity];
+        keyMost = new long[capacity];
+        keyLeast = new long[capacity];
+        expireAt = new long[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private static int hash(long ownerMost, long ownerLeast, long keyMost, long keyLeast) {
+        long h = ownerMost * 0x9E3779B97F4A7C15L;
+        h = (h ^ ownerLeast) * 0xC2B2AE3D27D4EB4FL;
+        h = (h ^ keyMost) * 0x165667B19E3779F9L;
+        h = (h ^ keyLeast) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int find(long ownerMost, long ownerLeast, long keyMost, long keyLeast) {
+        int i = hash(ownerMost, ownerLeast, keyMost, keyLeast) & mask;
+        while (used[i]) {
+            if (this.keyLeast[i] == keyLeast && this.keyMost[i] == keyMost
+                    && this.ownerLeast[i] == ownerLeast && this.ownerMost[i] == ownerMost) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insert(long ownerMost, long ownerLeast, long keyMost, long keyLeast, long expireTime) {
+        int i = hash(ownerMost, ownerLeast, keyMost, keyLeast) & mask;
+        while (used[i]) {
+            i = (i + 1) & mask;
+        }
+        this.ownerMost[i] = ownerMost;
+        this.ownerLeast[i] = ownerLeast;
+        this.keyMost[i] = keyMost;
+        this.keyLeast[i] = keyLeast;
+        this.expireAt[i] = expireTime;
+        used[i] = true;
+        size++;
+    }
+
+    // 删除后把后面探测链上的项前移，保持线性探测不需要墓碑
+    private void removeAt(int i) {
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (!used[j]) break;
+            int home = hash(ownerMost[j], ownerLeast[j], keyMost[j], keyLeast[j]) & mask;
+            // home 循环地位于 (i, j] 之间时该项不能前移
+            boolean stays = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+            if (stays) continue;
+            ownerMost[i] = ownerMost[j];
+            ownerLeast[i] = ownerLeast[j];
+            keyMost[i] = keyMost[j];
+            keyLeast[i] = keyLeast[j];
+            expireAt[i] = expireAt[j];
+            i = j;
+        }
+        used[i] = false;
+        size--;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldOwnerMost = ownerMost, oldOwnerLeast = ownerLeast;
+        long[] oldKeyMost = keyMost, oldKeyLeast = keyLeast;
+        long[] oldExpireAt = expireAt;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i]) {
+                insert(oldOwnerMost[i], oldOwnerLeast[i], oldKeyMost[i], oldKeyLeast[i], oldExpireAt[i]);
+            }
+        }
+    }
+
+    // --- 时间轮 ---
+
+    private void schedule(long ownerMost, long ownerLeast, long keyMost, long keyLeast, long expireTime) {
+        int bucket = (int) (expireTime & WHEEL_MASK);
+        long[] entries = wheel[bucket];
+        int offset = wheelCounts[bucket] * WHEEL_ENTRY;
+        if (entries == null) {
+            entries = wheel[bucket] = new long[WHEEL_ENTRY * 4];
+        } else if (offset + WHEEL_ENTRY > entries.length) {
+            entries = wheel[bucket] = Arrays.copyOf(entries, entries.length * 2);
+        }
+        entries[offset] = ownerMost;
+        entries[offset + 1] = ownerLeast;
+        entries[offset + 2] = keyMost;
+        entries[offset + 3] = keyLeast;
+        entries[offset + 4] = expireTime;
+        wheelCounts[bucket]++;
+    }
+
+    private void processBucket(int bucket, long now) {
+        long[] entries = wheel[bucket];
+        int count = wheelCounts[bucket];
+        int kept = 0;
+        for (int n = 0; n < count; n++) {
+            int offset = n * WHEEL_ENTRY;
+            long expireTime = entries[offset + 4];
+            int slot = find(entries[offset], entries[offset + 1], entries[offset + 2], entries[offset + 3]);
+            // 冷却已被移除或重新设置，此项作废
+            if (slot < 0 || expireAt[slot] != expireTime) continue;
+            if (expireTime <= now) {
+                removeAt(slot);
+                reclaimed++;
+                continue;
+            }
+            // 尚未到期（超过一圈的冷却），留到下一圈
+            if (kept != n) {
+                System.arraycopy(entries, offset, entries, kept * WHEEL_ENTRY, WHEEL_ENTRY);
+            }
+            kept++;
+        }
+        wheelCounts[bucket] = kept;
+        // 释放大量冷却过期后留下的大数组
+        if (kept == 0 && entries != null && entries.length > WHEEL_ENTRY * 64) {
+            wheel[bucket] = null;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package net.yixi_xun.affix_core.util;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 有容量上限的近似 LRU 缓存，并统计命中、未命中、淘汰和失效次数。
+ * <p>
+ * 缓存项保存在 {@link ConcurrentHashMap} 中，读取不加锁，命中时只给缓存项打上访问标记；
+ * 写入和淘汰在锁内进行，按写入顺序排队，淘汰时采用二次机会（CLOCK）算法：
+ * 被访问过的项清除标记后移到队尾，未被访问过的项被淘汰。
+ * 因此淘汰顺序只是近似的最久未使用顺序。
+ */
+public class LruCache<K, V> {
+    private final ConcurrentHashMap<K, Node<K, V>> map = new ConcurrentHashMap<>();
+    // 淘汰队列，只在锁内访问；被覆盖或移除的项留在队列中，淘汰或整理时跳过
+    private final ArrayDeque<Node<K, V>> queue = new ArrayDeque<>();
+    private volatile int capacity;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public LruCache(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * 读取缓存并记录命中情况，不加锁
+     *
+     * @return 缓存的值，不存在时返回 null
+     */
+    public V get(K key) {
+        Node<K, V> node = map.get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        // 已有标记时不再写入，避免热点项在多线程间反复写同一缓存行
+        if (!node.referenced) {
+            node.referenced = true;
+        }
+        return node.value;
+    }
+
+    public void put(K key, V value) {
+        Node<K, V> node = new Node<>(key, value);
+        synchronized (this) {
+            map.put(key, node);
+            enqueue(node);
+        }
+    }
+
+    /**
+     * 读取缓存，不存在时计算并写入。
+     * 计算在锁外进行，并发时同一个键可能被计算多次，以先写入的结果为准。
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        V computed = mappingFunction.apply(key);
+        if (computed == null) {
+            return null;
+        }
+        Node<K, V> node = new Node<>(key, computed);
+        synchronized (this) {
+            Node<K, V> existing = map.putIfAbsent(key, node);
+            if (existing != null) {
+                return existing.value;
+            }
+            enqueue(node);
+        }
+        return computed;
+    }
+
+    /**
+     * 移除缓存项，存在时计入失效次数
+     */
+    public V remove(K key) {
+        Node<K, V> removed = map.remove(key);
+        if (removed == null) {
+            return null;
+        }
+        invalidations.increment();
+        return removed.value;
+    }
+
+    public synchronized void clear() {
+        map.clear();
+        queue.clear();
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 修改容量，超出的部分立即淘汰
+     */
+    public synchronized void setCapacity(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        evictOverflow();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    /**
+     * 命中率，没有访问记录时为 0
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    public void resetStats() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+        invalidations.reset();
+    }
+
+    // 以下方法只在锁内调用
+
+    private void enqueue(Node<K, V> node) {
+        queue.addLast(node);
+        evictOverflow();
+        // 频繁覆盖或移除时队列中会积累失效项，超过存活项两倍时整理一次
+        if (queue.size() > map.size() * 2 + 16) {
+            queue.removeIf(n -> !isLive(n));
+        }
+    }
+
+    private void evictOverflow() {
+        while (map.size() > capacity) {
+            Node<K, V> node = queue.pollFirst();
+            if (node == null) {
+                return;
+            }
+            if (!isLive(node)) {
+                continue;
+            }
+            if (node.referenced) {
+                // 二次机会：清除标记后移到队尾
+                node.referenced = false;
+                queue.addLast(node);
+                continue;
+            }
+            if (map.remove(node.key, node)) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private boolean isLive(Node<K, V> node) {
+        return map.get(node.key) == node;
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        final V value;
+        volatile boolean referenced;
+
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}